@@ -0,0 +1,46 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the usual JMH options and
+ * always adds the GC profiler, so allocation rate per operation is
+ * reported next to the timings.
+ *
+ * @author Kateryna Mironova
+ */
+public final class Benchmarks {
+
+    /**
+     * Options which only print information and do not run benchmarks.
+     */
+    private static final List<String> INFO_OPTIONS =
+            Arrays.asList("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    /**
+     * Utility class constructor.
+     */
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs benchmarks selected by the command-line options.
+     *
+     * @param args JMH command-line options
+     * @throws Exception if options are wrong or benchmarks fail
+     */
+    public static void main(String[] args) throws Exception {
+        if (Arrays.stream(args).anyMatch(INFO_OPTIONS::contains)) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,149 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Benchmark of the full-text search of user descriptions against an
+ * embedded database seeded with a million users. Every description
+ * mentions one rare topic (one user in {@link #RARE_TOPICS} has it) and
+ * one common topic, so both selective and broad queries are measured.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DescriptionSearchBenchmark {
+
+    /**
+     * Number of users on one page.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Number of different rare topics.
+     */
+    private static final int RARE_TOPICS = 10000;
+
+    /**
+     * Common topics, each of them is mentioned by every fourth user.
+     */
+    private static final String[] COMMON_TOPICS = {"gardening", "football",
+            "photography", "cooking"};
+
+    /**
+     * Number of seeded users.
+     */
+    @Param({"1000000"})
+    private int rows;
+
+    /**
+     * Number of characters in the description of every user.
+     */
+    @Param({"1000"})
+    private int descriptionLength;
+
+    /**
+     * Search query.
+     */
+    @Param({"topic42", "photography", "photography -cooking"})
+    private String query;
+
+    /**
+     * Application under test.
+     */
+    private EmbeddedApplication application;
+
+    /**
+     * Service under test.
+     */
+    private UserService userService;
+
+    /**
+     * Token of the second page of the results.
+     */
+    private String secondPage;
+
+    /**
+     * Starts the application and seeds the users.
+     *
+     * @throws IOException if the database cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        application = EmbeddedApplication.start("users.password.cost=4");
+        userService = application.getBean(UserService.class);
+        userService.saveAllInBatches(newUsers());
+        secondPage = userService.searchDescription(query, null, PAGE_SIZE)
+                .getNextCursor();
+    }
+
+    /**
+     * Stops the application and the database.
+     *
+     * @throws IOException if the database cannot be stopped
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    /**
+     * Searches the first page of the most relevant users.
+     *
+     * @return page of found users
+     */
+    @Benchmark
+    public CursorPage<DescriptionMatch> searchFirstPage() {
+        return userService.searchDescription(query, null, PAGE_SIZE);
+    }
+
+    /**
+     * Searches the second page of the most relevant users.
+     *
+     * @return page of found users
+     */
+    @Benchmark
+    public CursorPage<DescriptionMatch> searchSecondPage() {
+        return userService.searchDescription(query, secondPage, PAGE_SIZE);
+    }
+
+    /**
+     * Creates users whose descriptions mention the topics.
+     *
+     * @return iterator which creates users when they are requested
+     */
+    private Iterator<User> newUsers() {
+        return LongStream.range(0, rows).mapToObj(number -> {
+            User user = UserFixtures.newUser(number, 0);
+            user.setDescription("Interested in topic"
+                    + number % RARE_TOPICS + " and "
+                    + COMMON_TOPICS[(int) (number % COMMON_TOPICS.length)]
+                    + ". " + UserFixtures.description(descriptionLength));
+            return user;
+        }).iterator();
+    }
+}
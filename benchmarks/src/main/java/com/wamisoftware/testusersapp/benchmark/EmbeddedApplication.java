@@ -0,0 +1,162 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.Application;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application started against an embedded PostgreSQL instance, so it can
+ * be measured without external database. A locally started PostgreSQL is
+ * used instead when benchmark.jdbc-url (and optionally
+ * benchmark.jdbc-username and benchmark.jdbc-password) system properties
+ * are set.
+ *
+ * @author Kateryna Mironova
+ */
+final class EmbeddedApplication implements AutoCloseable {
+
+    /**
+     * Embedded database or null if a local database is used.
+     */
+    private final EmbeddedPostgres postgres;
+
+    /**
+     * Started application context.
+     */
+    private final ConfigurableApplicationContext context;
+
+    /**
+     * Constructor for application initialization.
+     *
+     * @param postgres embedded database
+     * @param context  started application context
+     */
+    private EmbeddedApplication(EmbeddedPostgres postgres,
+            ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * Starts embedded database and the application without web server.
+     *
+     * @param properties additional application properties in form
+     *                   "name=value"
+     * @return started application
+     * @throws IOException if the database cannot be started
+     */
+    static EmbeddedApplication start(String... properties) throws IOException {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Starts embedded database and the application with web server on a
+     * random port.
+     *
+     * @param properties additional application properties in form
+     *                   "name=value"
+     * @return started application
+     * @throws IOException if the database cannot be started
+     */
+    static EmbeddedApplication startWeb(String... properties)
+            throws IOException {
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    /**
+     * Starts embedded database and the application connected to it.
+     *
+     * @param webApplicationType type of the application
+     * @param properties         additional application properties in form
+     *                           "name=value"
+     * @return started application
+     * @throws IOException if the database cannot be started
+     */
+    private static EmbeddedApplication start(
+            WebApplicationType webApplicationType, String... properties)
+            throws IOException {
+        // JAXB (used to read ehcache.xml) cannot generate its accessor
+        // classes from the benchmarks jar on newer JDKs
+        System.setProperty("com.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize",
+                "true");
+        List<String> args = new ArrayList<>();
+        EmbeddedPostgres postgres = null;
+        String jdbcUrl = System.getProperty("benchmark.jdbc-url");
+        if (jdbcUrl == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            args.add("--spring.datasource.url=jdbc:postgresql://localhost:"
+                    + postgres.getPort()
+                    + "/postgres?reWriteBatchedInserts=true");
+            args.add("--spring.datasource.username=postgres");
+            args.add("--spring.datasource.password=postgres");
+        } else {
+            args.add("--spring.datasource.url=" + jdbcUrl);
+            addIfSet(args, "spring.datasource.username",
+                    "benchmark.jdbc-username");
+            addIfSet(args, "spring.datasource.password",
+                    "benchmark.jdbc-password");
+        }
+        args.add("--server.port=0");
+        args.add("--logging.level.root=WARN");
+        args.add("--logging.level.org.hibernate.engine.jdbc.spi=ERROR");
+        args.add("--logging.level.org.hibernate.tool.schema=ERROR");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        ConfigurableApplicationContext context =
+                new SpringApplicationBuilder(Application.class)
+                        .web(webApplicationType)
+                        .run(args.toArray(new String[0]));
+        return new EmbeddedApplication(postgres, context);
+    }
+
+    /**
+     * Adds application property if the system property is set.
+     *
+     * @param args           application arguments
+     * @param property       name of the application property
+     * @param systemProperty name of the system property with the value
+     */
+    private static void addIfSet(List<String> args, String property,
+            String systemProperty) {
+        String value = System.getProperty(systemProperty);
+        if (value != null) {
+            args.add("--" + property + "=" + value);
+        }
+    }
+
+    /**
+     * Returns port of the web server.
+     *
+     * @return port which the application listens to
+     */
+    int getPort() {
+        return context.getEnvironment().getRequiredProperty(
+                "local.server.port", Integer.class);
+    }
+
+    /**
+     * Returns bean of the application.
+     *
+     * @param type class of the bean
+     * @param <T>  type of the bean
+     * @return bean of specified class
+     */
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wamisoftware.testusersapp.dto.Credentials;
+import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of the HTTP endpoints which hash or verify passwords at
+ * different cost factors. Many clients send requests at once, so the
+ * scores are requests per second the application sustains while the
+ * password pool is saturated. Rejected requests (503) are counted as
+ * completed ones, so watch the users.password.rejected metric as well.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    /**
+     * Password of the user who signs in.
+     */
+    private static final String PASSWORD = "password0";
+
+    /**
+     * Cost factor of the password hashes.
+     */
+    @Param({"10", "13", "16"})
+    private int cost;
+
+    /**
+     * Application under test.
+     */
+    private EmbeddedApplication application;
+
+    /**
+     * Client to send requests.
+     */
+    private RestTemplate restTemplate;
+
+    /**
+     * Root URL of the users endpoints.
+     */
+    private String usersUrl;
+
+    /**
+     * Credentials of the user who signs in.
+     */
+    private Credentials credentials;
+
+    /**
+     * Mapper to write created users with their passwords, which are never
+     * written with the user otherwise.
+     */
+    private ObjectMapper objectMapper;
+
+    /**
+     * Number of the next created user, which keeps logins unique.
+     */
+    private final AtomicLong nextUser = new AtomicLong(1);
+
+    /**
+     * Starts the application and creates the user who signs in.
+     *
+     * @throws IOException if the database cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        application = EmbeddedApplication.startWeb(
+                "users.password.cost=" + cost);
+        User user = UserFixtures.newUser(0, 0);
+        user.setPassword(PASSWORD);
+        application.getBean(UserService.class).save(user);
+        objectMapper = application.getBean(ObjectMapper.class);
+        credentials = new Credentials();
+        credentials.setLogin(user.getLogin());
+        credentials.setPassword(PASSWORD);
+        usersUrl = "http://localhost:" + application.getPort() + "/users";
+        // Keep a connection per client thread alive instead of the JDK
+        // default 5
+        System.setProperty("http.maxConnections", "16");
+        restTemplate = new RestTemplate();
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Stops the application and the database.
+     *
+     * @throws IOException if the database cannot be stopped
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    /**
+     * Creates new user, which hashes the password.
+     *
+     * @return status code of the response
+     */
+    @Benchmark
+    public int createUser() {
+        User user = UserFixtures.newUser(nextUser.getAndIncrement(), 0);
+        ObjectNode body = objectMapper.<ObjectNode>valueToTree(user)
+                .put("password", user.getPassword());
+        return restTemplate.postForEntity(usersUrl, body, String.class)
+                .getStatusCodeValue();
+    }
+
+    /**
+     * Signs in, which verifies the password.
+     *
+     * @return status code of the response
+     */
+    @Benchmark
+    public int login() {
+        return restTemplate.postForEntity(usersUrl + "/login", credentials,
+                String.class).getStatusCodeValue();
+    }
+}
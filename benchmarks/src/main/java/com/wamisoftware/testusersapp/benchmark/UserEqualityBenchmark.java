@@ -0,0 +1,107 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of User.equals and User.hashCode, which compare and hash the
+ * whole user including description and address.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserEqualityBenchmark {
+
+    /**
+     * Number of characters in the user description.
+     */
+    @Param({"0", "25000"})
+    private int descriptionLength;
+
+    /**
+     * User to compare and hash.
+     */
+    private User user;
+
+    /**
+     * Equal copy of the user.
+     */
+    private User copy;
+
+    /**
+     * User with different login.
+     */
+    private User other;
+
+    /**
+     * Prepares the users.
+     */
+    @Setup
+    public void setUp() {
+        user = createUser(1);
+        copy = createUser(1);
+        other = createUser(2);
+    }
+
+    /**
+     * Compares user with its equal copy.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean equalsCopy() {
+        return user.equals(copy);
+    }
+
+    /**
+     * Compares user with another user.
+     *
+     * @return false
+     */
+    @Benchmark
+    public boolean equalsOther() {
+        return user.equals(other);
+    }
+
+    /**
+     * Hashes user.
+     *
+     * @return hash code of the user
+     */
+    @Benchmark
+    public int userHashCode() {
+        return user.hashCode();
+    }
+
+    /**
+     * Creates user with id.
+     *
+     * @param number number of the user
+     * @return new user
+     */
+    private User createUser(long number) {
+        User created = UserFixtures.newUser(number, descriptionLength);
+        created.setId(1L);
+        if (created.getAddress() != null) {
+            created.getAddress().setId(1L);
+        }
+        return created;
+    }
+}
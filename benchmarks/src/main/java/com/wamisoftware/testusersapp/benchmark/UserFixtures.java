@@ -0,0 +1,111 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.model.Address;
+import com.wamisoftware.testusersapp.model.User;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.LongStream;
+
+/**
+ * Factory of the users used by benchmarks.
+ *
+ * @author Kateryna Mironova
+ */
+final class UserFixtures {
+
+    /**
+     * First names given to users in turn.
+     */
+    private static final String[] FIRST_NAMES = {"Anna", "Andrii", "Bohdan",
+            "Iryna", "Kateryna", "Mykola", "Olena", "Taras"};
+
+    /**
+     * Last names given to users in turn.
+     */
+    private static final String[] LAST_NAMES = {"Bondarenko", "Kovalenko",
+            "Melnyk", "Mironova", "Shevchenko", "Tkachenko"};
+
+    /**
+     * Utility class constructor.
+     */
+    private UserFixtures() {
+    }
+
+    /**
+     * Creates new valid user without id. Every second user has an address.
+     *
+     * @param number            number of the user which makes its login
+     *                          unique
+     * @param descriptionLength number of characters in the description
+     * @return new user
+     */
+    static User newUser(long number, int descriptionLength) {
+        User user = new User();
+        user.setFirstName(firstName(number));
+        user.setLastName(lastName(number));
+        user.setBirthday(LocalDate.ofEpochDay(number % 15000));
+        user.setLogin("user" + number + "@example.com");
+        user.setPassword("password" + number);
+        user.setDescription(description(descriptionLength));
+        if (number % 2 == 0) {
+            Address address = new Address();
+            address.setCountry("Ukraine");
+            address.setCity("Kyiv");
+            address.setStreet("Khreshchatyk");
+            address.setHomeNumber(String.valueOf(number % 100 + 1));
+            user.setAddress(address);
+        }
+        return user;
+    }
+
+    /**
+     * Returns first name of the user with specified number.
+     *
+     * @param number number of the user
+     * @return first name of the user
+     */
+    static String firstName(long number) {
+        return FIRST_NAMES[(int) (number % FIRST_NAMES.length)];
+    }
+
+    /**
+     * Returns last name of the user with specified number.
+     *
+     * @param number number of the user
+     * @return last name of the user
+     */
+    static String lastName(long number) {
+        return LAST_NAMES[(int) (number % LAST_NAMES.length)];
+    }
+
+    /**
+     * Creates new users with consecutive numbers.
+     *
+     * @param first number of the first user
+     * @param count number of users
+     * @return iterator which creates users when they are requested
+     */
+    static Iterator<User> newUsers(long first, long count) {
+        return LongStream.range(first, first + count)
+                .mapToObj(number -> newUser(number, 0)).iterator();
+    }
+
+    /**
+     * Creates description of specified length.
+     *
+     * @param length number of characters
+     * @return description text or null if the length is zero
+     */
+    static String description(int length) {
+        if (length == 0) {
+            return null;
+        }
+        StringBuilder description = new StringBuilder(length);
+        while (description.length() < length) {
+            description.append("Lorem ipsum dolor sit amet. ");
+        }
+        description.setLength(length);
+        return description.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.dto.BatchImportResult;
+import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of importing users: batched import used by POST /users/batch
+ * compared with saving users one by one. Scores are users per second.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserImportBenchmark {
+
+    /**
+     * Number of users imported by one benchmark call.
+     */
+    private static final int USERS_PER_CALL = 1000;
+
+    /**
+     * Cost factor of the password hashes. It is the lowest one by default,
+     * so the benchmark measures database writes rather than hashing (which
+     * PasswordHashingBenchmark measures).
+     */
+    @Param({"4"})
+    private int passwordCost;
+
+    /**
+     * Application under test.
+     */
+    private EmbeddedApplication application;
+
+    /**
+     * Service under test.
+     */
+    private UserService userService;
+
+    /**
+     * Number of the next user to import, which keeps logins unique.
+     */
+    private long nextUser;
+
+    /**
+     * Starts the application.
+     *
+     * @throws IOException if the database cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        application = EmbeddedApplication.start("users.password.cost="
+                + passwordCost);
+        userService = application.getBean(UserService.class);
+    }
+
+    /**
+     * Stops the application and the database.
+     *
+     * @throws IOException if the database cannot be stopped
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    /**
+     * Imports users in batches.
+     *
+     * @return result of the import
+     */
+    @Benchmark
+    @OperationsPerInvocation(USERS_PER_CALL)
+    public BatchImportResult importInBatches() {
+        return userService.saveAllInBatches(nextUsers());
+    }
+
+    /**
+     * Saves users one by one, each in its own transaction.
+     *
+     * @param blackhole consumer of the saved users
+     */
+    @Benchmark
+    @OperationsPerInvocation(USERS_PER_CALL)
+    public void importOneByOne(Blackhole blackhole) {
+        Iterator<User> users = nextUsers();
+        while (users.hasNext()) {
+            blackhole.consume(userService.save(users.next()));
+        }
+    }
+
+    /**
+     * Creates users for one benchmark call.
+     *
+     * @return iterator over new users
+     */
+    private Iterator<User> nextUsers() {
+        Iterator<User> users = UserFixtures.newUsers(nextUser, USERS_PER_CALL);
+        nextUser += USERS_PER_CALL;
+        return users;
+    }
+}
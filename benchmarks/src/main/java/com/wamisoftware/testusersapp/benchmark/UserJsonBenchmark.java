@@ -0,0 +1,94 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wamisoftware.testusersapp.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of writing users to JSON and reading them from JSON with the
+ * same Jackson settings the application uses. Description is only read
+ * from JSON (it is never written), so its length matters for reading.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    /**
+     * Number of characters in the user description (25000 is the limit).
+     */
+    @Param({"0", "25000"})
+    private int descriptionLength;
+
+    /**
+     * Mapper configured as in the application.
+     */
+    private ObjectMapper objectMapper;
+
+    /**
+     * User to write.
+     */
+    private User user;
+
+    /**
+     * JSON payload of the user to read.
+     */
+    private byte[] json;
+
+    /**
+     * Prepares the user and its JSON payload.
+     *
+     * @throws IOException if the user cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        user = UserFixtures.newUser(1, descriptionLength);
+        user.setId(1L);
+        ObjectNode payload = objectMapper.valueToTree(user);
+        payload.put("description", user.getDescription());
+        json = objectMapper.writeValueAsBytes(payload);
+    }
+
+    /**
+     * Writes user to JSON.
+     *
+     * @return JSON of the user
+     * @throws IOException if the user cannot be written
+     */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    /**
+     * Reads user from JSON.
+     *
+     * @return read user
+     * @throws IOException if the user cannot be read
+     */
+    @Benchmark
+    public User deserialize() throws IOException {
+        return objectMapper.readValue(json, User.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the UserService read paths against an embedded database
+ * seeded with the specified number of users. Run with -p rows=1000000 to
+ * measure the name search on a million users.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    /**
+     * Id of the first seeded user (data.sql restarts sequences with 3).
+     */
+    private static final long FIRST_ID = 3;
+
+    /**
+     * Number of users on one page.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Number of seeded users.
+     */
+    @Param({"100000"})
+    private int rows;
+
+    /**
+     * Type of the users cache ("none" turns caching off).
+     */
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    /**
+     * Beginning of the name to search.
+     */
+    @Param({"Ann"})
+    private String namePrefix;
+
+    /**
+     * Application under test.
+     */
+    private EmbeddedApplication application;
+
+    /**
+     * Service under test.
+     */
+    private UserService userService;
+
+    /**
+     * Starts the application and seeds the users.
+     *
+     * @throws IOException if the database cannot be started
+     */
+    @Setup
+    public void setUp() throws IOException {
+        application = EmbeddedApplication.start("spring.cache.type="
+                + cacheType, "users.password.cost=4");
+        userService = application.getBean(UserService.class);
+        userService.saveAllInBatches(UserFixtures.newUsers(0, rows));
+    }
+
+    /**
+     * Stops the application and the database.
+     *
+     * @throws IOException if the database cannot be stopped
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    /**
+     * Finds random user by id.
+     *
+     * @return found user
+     */
+    @Benchmark
+    public Optional<User> findById() {
+        return userService.findById(FIRST_ID
+                + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    /**
+     * Reads the first page of users.
+     *
+     * @return page of users
+     */
+    @Benchmark
+    public CursorPage<User> findPage() {
+        return userService.findPage(null, PAGE_SIZE);
+    }
+
+    /**
+     * Searches users by the beginning of the name.
+     *
+     * @return page of found users
+     */
+    @Benchmark
+    public CursorPage<User> searchByName() {
+        return userService.searchByName(namePrefix, null, PAGE_SIZE);
+    }
+}
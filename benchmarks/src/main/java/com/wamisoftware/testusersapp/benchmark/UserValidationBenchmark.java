@@ -0,0 +1,103 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the bean validation done for @Valid user payloads.
+ *
+ * @author Kateryna Mironova
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserValidationBenchmark {
+
+    /**
+     * Number of characters in the user description.
+     */
+    @Param({"0", "25000"})
+    private int descriptionLength;
+
+    /**
+     * Factory of the validator.
+     */
+    private ValidatorFactory validatorFactory;
+
+    /**
+     * Validator as used by Spring MVC.
+     */
+    private Validator validator;
+
+    /**
+     * User without constraint violations.
+     */
+    private User validUser;
+
+    /**
+     * User with malformed login and too short password.
+     */
+    private User invalidUser;
+
+    /**
+     * Prepares the validator and the users.
+     */
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validUser = UserFixtures.newUser(1, descriptionLength);
+        invalidUser = UserFixtures.newUser(2, descriptionLength);
+        invalidUser.setLogin("not an email");
+        invalidUser.setPassword("123");
+    }
+
+    /**
+     * Closes the validator factory.
+     */
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    /**
+     * Validates user without violations.
+     *
+     * @return empty set of violations
+     */
+    @Benchmark
+    public Set<ConstraintViolation<User>> validateValid() {
+        return validator.validate(validUser);
+    }
+
+    /**
+     * Validates user with violations.
+     *
+     * @return found violations
+     */
+    @Benchmark
+    public Set<ConstraintViolation<User>> validateInvalid() {
+        return validator.validate(invalidUser);
+    }
+}
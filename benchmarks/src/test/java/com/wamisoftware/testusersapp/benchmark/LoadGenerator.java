@@ -0,0 +1,278 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.model.User;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generator of HTTP load at a fixed arrival rate. Requests are started on
+ * schedule whether earlier requests have finished or not, and latency is
+ * measured from the scheduled start, so a slow server cannot hide its
+ * queueing delay by slowing the load down.
+ *
+ * @author Kateryna Mironova
+ */
+class LoadGenerator {
+
+    /**
+     * Highest latency which can be recorded, in microseconds.
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * Root URL of the users endpoints.
+     */
+    private final String usersUrl;
+
+    /**
+     * Client to send requests.
+     */
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    /**
+     * Weights of the operations in the workload.
+     */
+    private final Map<LoadOperation, Integer> weights;
+
+    /**
+     * Sum of the operation weights.
+     */
+    private final int totalWeight;
+
+    /**
+     * Lowest id of the users which are read and updated.
+     */
+    private final long firstId;
+
+    /**
+     * Highest id of the users which are read and updated.
+     */
+    private final long lastId;
+
+    /**
+     * Id of the next user to delete.
+     */
+    private final AtomicLong nextDeletedId;
+
+    /**
+     * Highest id of the users which can be deleted.
+     */
+    private final long lastDeletableId;
+
+    /**
+     * Number of threads sending requests.
+     */
+    private final int threads;
+
+    /**
+     * Constructor for generator initialization.
+     *
+     * @param port             port of the application
+     * @param weights          weights of the operations in the workload
+     * @param firstId          lowest id of the users to read and update
+     * @param lastId           highest id of the users to read and update
+     * @param firstDeletableId lowest id of the users to delete
+     * @param lastDeletableId  highest id of the users to delete
+     * @param threads          number of threads sending requests
+     */
+    LoadGenerator(int port, Map<LoadOperation, Integer> weights,
+            long firstId, long lastId, long firstDeletableId,
+            long lastDeletableId, int threads) {
+        this.usersUrl = "http://localhost:" + port + "/users";
+        this.weights = weights;
+        this.totalWeight = weights.values().stream()
+                .mapToInt(Integer::intValue).sum();
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.nextDeletedId = new AtomicLong(firstDeletableId);
+        this.lastDeletableId = lastDeletableId;
+        this.threads = threads;
+        // Keep a connection per thread alive instead of the JDK default 5
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Sends requests at fixed rate for specified time.
+     *
+     * @param ratePerSecond number of requests started per second
+     * @param duration      time to send requests
+     * @param unit          unit of the duration
+     * @return results of every operation
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              last requests
+     */
+    Map<LoadOperation, OperationResult> run(int ratePerSecond, long duration,
+            TimeUnit unit) throws InterruptedException {
+        Map<LoadOperation, OperationResult> results =
+                new EnumMap<>(LoadOperation.class);
+        for (LoadOperation operation : weights.keySet()) {
+            results.put(operation, new OperationResult());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long durationNanos = unit.toNanos(duration);
+        long start = System.nanoTime();
+        for (long i = 0; i * intervalNanos < durationNanos; i++) {
+            long scheduled = start + i * intervalNanos;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            LoadOperation operation = nextOperation();
+            executor.execute(() -> {
+                boolean success = send(operation);
+                long latencyMicros = TimeUnit.NANOSECONDS
+                        .toMicros(System.nanoTime() - scheduled);
+                results.get(operation).record(
+                        Math.min(latencyMicros, MAX_LATENCY_MICROS), success);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return results;
+    }
+
+    /**
+     * Chooses the next operation according to the weights.
+     *
+     * @return operation to send
+     */
+    private LoadOperation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<LoadOperation, Integer> weight : weights.entrySet()) {
+            value -= weight.getValue();
+            if (value < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Operation weights are empty");
+    }
+
+    /**
+     * Sends one request.
+     *
+     * @param operation operation to send
+     * @return true if the application answered with 2xx status
+     */
+    private boolean send(LoadOperation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = firstId + random.nextLong(lastId - firstId + 1);
+        ResponseEntity<String> response;
+        try {
+            switch (operation) {
+                case ALL:
+                    response = restTemplate.getForEntity(usersUrl + "/all",
+                            String.class);
+                    break;
+                case BY_ID:
+                    response = restTemplate.getForEntity(usersUrl + "/{id}",
+                            String.class, id);
+                    break;
+                case NAME:
+                    response = restTemplate.getForEntity(usersUrl
+                            + "/name?firstName={firstName}&lastName={lastName}",
+                            String.class, UserFixtures.firstName(id),
+                            UserFixtures.lastName(id));
+                    break;
+                case OLDER_THAN:
+                    response = restTemplate.getForEntity(usersUrl
+                            + "/olderThan?date=1971-01-01", String.class);
+                    break;
+                case UPDATE:
+                    User user = UserFixtures.newUser(id, 0);
+                    user.setLogin("updated" + id + "@example.com");
+                    response = restTemplate.exchange(usersUrl + "/{id}",
+                            HttpMethod.PUT, new HttpEntity<>(user),
+                            String.class, id);
+                    break;
+                case DELETE:
+                    long deletedId = nextDeletedId.getAndIncrement();
+                    if (deletedId > lastDeletableId) {
+                        throw new IllegalStateException("No users left to "
+                                + "delete, seed more deletable users");
+                    }
+                    response = restTemplate.exchange(usersUrl + "/{id}",
+                            HttpMethod.DELETE, null, String.class, deletedId);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation "
+                            + operation);
+            }
+        } catch (RestClientException e) {
+            return false;
+        }
+        return response.getStatusCode().is2xxSuccessful();
+    }
+
+    /**
+     * Latencies and errors of one operation.
+     */
+    static class OperationResult {
+
+        /**
+         * Latencies of all requests in microseconds.
+         */
+        private final Histogram histogram =
+                new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        /**
+         * Number of failed requests.
+         */
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * Records one request.
+         *
+         * @param latencyMicros latency of the request in microseconds
+         * @param success       whether the request succeeded
+         */
+        void record(long latencyMicros, boolean success) {
+            histogram.recordValue(latencyMicros);
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * Function to get latencies {@link OperationResult#histogram}.
+         *
+         * @return latencies of all requests in microseconds
+         */
+        Histogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * Function to get number of failed requests
+         * {@link OperationResult#errors}.
+         *
+         * @return number of failed requests
+         */
+        long getErrors() {
+            return errors.sum();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+/**
+ * Operations the load test sends to the application.
+ *
+ * @author Kateryna Mironova
+ */
+enum LoadOperation {
+
+    /**
+     * GET /users/all.
+     */
+    ALL("all"),
+
+    /**
+     * GET /users/{id}.
+     */
+    BY_ID("by-id"),
+
+    /**
+     * GET /users/name.
+     */
+    NAME("name"),
+
+    /**
+     * GET /users/olderThan.
+     */
+    OLDER_THAN("older-than"),
+
+    /**
+     * PUT /users/{id}.
+     */
+    UPDATE("update"),
+
+    /**
+     * DELETE /users/{id}.
+     */
+    DELETE("delete");
+
+    /**
+     * Name of the operation in load test properties.
+     */
+    private final String key;
+
+    /**
+     * Constructor for operation initialization.
+     *
+     * @param key name of the operation in load test properties
+     */
+    LoadOperation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Function to get name of the operation {@link LoadOperation#key}.
+     *
+     * @return name of the operation in load test properties
+     */
+    String getKey() {
+        return key;
+    }
+}
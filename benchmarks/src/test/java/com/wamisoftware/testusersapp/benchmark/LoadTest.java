@@ -0,0 +1,202 @@
+package com.wamisoftware.testusersapp.benchmark;
+
+import com.wamisoftware.testusersapp.service.UserService;
+import org.HdrHistogram.Histogram;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load test which seeds users, drives a mixed workload against the users
+ * endpoints at a fixed arrival rate and fails when p99 latency, throughput
+ * or error rate break the SLO from load-test.properties. Every property can
+ * be overridden by a system property with the same name. Latency
+ * distributions are written to target/load-test/*.hgrm.
+ *
+ * @author Kateryna Mironova
+ */
+public class LoadTest {
+
+    /**
+     * Microseconds in one millisecond, to print latencies in milliseconds.
+     */
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    /**
+     * Settings of the load test.
+     */
+    private static Properties settings;
+
+    /**
+     * Application under load.
+     */
+    private static EmbeddedApplication application;
+
+    /**
+     * Generator of the workload.
+     */
+    private static LoadGenerator generator;
+
+    /**
+     * Starts the application and seeds users.
+     *
+     * @throws IOException if the settings cannot be read or the database
+     *                     cannot be started
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        settings = new Properties();
+        try (InputStream in = LoadTest.class
+                .getResourceAsStream("/load-test.properties")) {
+            settings.load(in);
+        }
+        settings.putAll(System.getProperties());
+        String appProperties = settings.getProperty("load.app-properties");
+        application = EmbeddedApplication.startWeb(appProperties.isEmpty()
+                ? new String[0] : appProperties.split(","));
+        UserService userService = application.getBean(UserService.class);
+        JdbcTemplate jdbcTemplate = application.getBean(JdbcTemplate.class);
+        String maxId = "select max(id) from users_schema.users";
+        long users = getLong("load.users");
+        userService.saveAllInBatches(UserFixtures.newUsers(0, users));
+        long lastId = jdbcTemplate.queryForObject(maxId, Long.class);
+        userService.saveAllInBatches(UserFixtures.newUsers(users,
+                getLong("load.deletable-users")));
+        long lastDeletableId = jdbcTemplate.queryForObject(maxId, Long.class);
+        Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+        for (LoadOperation operation : LoadOperation.values()) {
+            int weight = (int) getLong("load.weight." + operation.getKey());
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        generator = new LoadGenerator(application.getPort(), weights,
+                lastId - users + 1, lastId, lastId + 1, lastDeletableId,
+                (int) getLong("load.threads"));
+    }
+
+    /**
+     * Stops the application and the database.
+     *
+     * @throws IOException if the database cannot be stopped
+     */
+    @AfterClass
+    public static void tearDown() throws IOException {
+        if (application != null) {
+            application.close();
+        }
+    }
+
+    /**
+     * Tests that the application keeps the latency, throughput and error
+     * rate objectives under the configured load.
+     *
+     * @throws Exception if the load cannot be generated or reported
+     */
+    @Test
+    public void testServiceLevelObjectives() throws Exception {
+        int rate = (int) getLong("load.rate-per-second");
+        generator.run(rate, getLong("load.warmup-seconds"), TimeUnit.SECONDS);
+        long duration = getLong("load.duration-seconds");
+        long start = System.nanoTime();
+        Map<LoadOperation, LoadGenerator.OperationResult> results =
+                generator.run(rate, duration, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        File reportDirectory = new File("target/load-test");
+        reportDirectory.mkdirs();
+        List<String> violations = new ArrayList<>();
+        long requests = 0;
+        long errors = 0;
+        System.out.printf("%-12s %8s %7s %9s %9s %9s %9s%n", "operation",
+                "count", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<LoadOperation, LoadGenerator.OperationResult> entry
+                : results.entrySet()) {
+            String key = entry.getKey().getKey();
+            Histogram histogram = entry.getValue().getHistogram();
+            requests += histogram.getTotalCount();
+            errors += entry.getValue().getErrors();
+            double p99 = histogram.getValueAtPercentile(99) / MICROS_PER_MILLI;
+            System.out.printf("%-12s %8d %7d %9.2f %9.2f %9.2f %9.2f%n", key,
+                    histogram.getTotalCount(), entry.getValue().getErrors(),
+                    histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(95) / MICROS_PER_MILLI, p99,
+                    histogram.getMaxValue() / MICROS_PER_MILLI);
+            try (PrintStream out = new PrintStream(
+                    new File(reportDirectory, key + ".hgrm"), "UTF-8")) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            double maxP99 = getDouble("load.slo.p99-ms." + key);
+            if (p99 > maxP99) {
+                violations.add(String.format("%s p99 %.2f ms is above %.2f ms",
+                        key, p99, maxP99));
+            }
+        }
+        double throughput = requests / elapsedSeconds;
+        double minThroughput = rate * getDouble("load.slo.min-throughput-ratio");
+        System.out.printf("throughput %.1f req/s (target %d req/s)%n",
+                throughput, rate);
+        if (throughput < minThroughput) {
+            violations.add(String.format("throughput %.1f req/s is below "
+                    + "%.1f req/s", throughput, minThroughput));
+        }
+        double errorRate = requests == 0 ? 0 : (double) errors / requests;
+        if (errorRate > getDouble("load.slo.max-error-rate")) {
+            violations.add(String.format("error rate %.4f is above %s",
+                    errorRate, settings.getProperty("load.slo.max-error-rate")));
+        }
+        assertTrue("SLO violations: " + violations, violations.isEmpty());
+    }
+
+    /**
+     * Reads integer setting.
+     *
+     * @param name name of the setting
+     * @return value of the setting
+     */
+    private static long getLong(String name) {
+        return Long.parseLong(getSetting(name));
+    }
+
+    /**
+     * Reads decimal setting.
+     *
+     * @param name name of the setting
+     * @return value of the setting
+     */
+    private static double getDouble(String name) {
+        return Double.parseDouble(getSetting(name));
+    }
+
+    /**
+     * Reads setting which must be present.
+     *
+     * @param name name of the setting
+     * @return value of the setting
+     */
+    private static String getSetting(String name) {
+        String value = settings.getProperty(name);
+        if (value == null) {
+            throw new IllegalStateException("Load test setting " + name
+                    + " is missing, known settings: "
+                    + Arrays.toString(settings.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith("load.")).toArray()));
+        }
+        return value.trim();
+    }
+}
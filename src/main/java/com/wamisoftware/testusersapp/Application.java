@@ -2,11 +2,13 @@ package com.wamisoftware.testusersapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 /**
  * Main class of application.
  */
 @SpringBootApplication
+@EnableCaching
 public class Application {
 
     /**
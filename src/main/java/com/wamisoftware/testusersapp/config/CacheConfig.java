@@ -0,0 +1,38 @@
+package com.wamisoftware.testusersapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wamisoftware.testusersapp.service.AddressService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the caches which need other settings than
+ * {@code spring.cache.caffeine.spec}.
+ *
+ * @author Kateryna Mironova
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Adds the cache of user counts by address. The counts change with
+     * every user, so they are kept only for a short time instead of being
+     * evicted on every write.
+     *
+     * @param ttl time to keep the counts
+     * @return customizer of the Caffeine cache manager
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> addressCountsCache(
+            @Value("${users.address.counts-ttl:30s}") Duration ttl) {
+        return cacheManager -> cacheManager.registerCustomCache(
+                AddressService.ADDRESS_COUNTS_CACHE, Caffeine.newBuilder()
+                        .maximumSize(1000).expireAfterWrite(ttl)
+                        .recordStats().build());
+    }
+}
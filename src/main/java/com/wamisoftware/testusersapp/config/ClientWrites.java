@@ -0,0 +1,133 @@
+package com.wamisoftware.testusersapp.config;
+
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Time of the last committed write of the client whose request is being
+ * handled. It is bound to the thread which handles the request, so reads
+ * of the client stay on the primary database for a while after the
+ * client's own writes, and reads of other clients still go to the
+ * replicas.
+ *
+ * @author Kateryna Mironova
+ */
+public class ClientWrites {
+
+    /**
+     * Writes of the client whose request is handled by the current thread.
+     */
+    private static final ThreadLocal<ClientWrites> CURRENT =
+            new ThreadLocal<>();
+
+    /**
+     * Time of the last committed write of the client, in milliseconds.
+     */
+    private volatile long lastWriteMillis;
+
+    /**
+     * Function which passes the time of a new write back to the client.
+     */
+    private final LongConsumer onWrite;
+
+    /**
+     * Constructor for writes of the client.
+     *
+     * @param lastWriteMillis time of the last write which the client knows
+     *                        about, in milliseconds (0 if there is none)
+     * @param onWrite         function which passes the time of a new write
+     *                        back to the client
+     */
+    public ClientWrites(long lastWriteMillis, LongConsumer onWrite) {
+        this.lastWriteMillis = lastWriteMillis;
+        this.onWrite = onWrite;
+    }
+
+    /**
+     * Function to get writes of the client whose request is handled by the
+     * current thread.
+     *
+     * @return writes of the client or null if the thread handles no request
+     */
+    public static ClientWrites current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds writes of the client to the current thread.
+     *
+     * @param writes writes of the client or null to unbind them
+     */
+    public static void bind(ClientWrites writes) {
+        if (writes == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(writes);
+        }
+    }
+
+    /**
+     * Wraps the work so that it runs with writes of the current client on
+     * whichever thread executes it.
+     *
+     * @param work work of the request
+     * @param <T>  type of the result
+     * @return work bound to the current client
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        ClientWrites writes = current();
+        return () -> {
+            ClientWrites previous = current();
+            bind(writes);
+            try {
+                return work.get();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps the work so that it runs with writes of the current client on
+     * whichever thread executes it.
+     *
+     * @param work work of the request
+     * @param <U>  type of the input
+     * @param <T>  type of the result
+     * @return work bound to the current client
+     */
+    public static <U, T> Function<U, T> propagate(
+            Function<? super U, ? extends T> work) {
+        ClientWrites writes = current();
+        return input -> {
+            ClientWrites previous = current();
+            bind(writes);
+            try {
+                return work.apply(input);
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Checks whether the client wrote something recently.
+     *
+     * @param millis length of the period, in milliseconds
+     * @return true if the last write of the client committed within the
+     *         period
+     */
+    public boolean wroteWithin(long millis) {
+        return System.currentTimeMillis() - lastWriteMillis < millis;
+    }
+
+    /**
+     * Registers committed write of the client.
+     */
+    public void markWritten() {
+        long now = System.currentTimeMillis();
+        lastWriteMillis = now;
+        onWrite.accept(now);
+    }
+}
@@ -0,0 +1,93 @@
+package com.wamisoftware.testusersapp.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Filter which tracks writes of every client with a cookie. The cookie
+ * holds the time of the last write of the client and is sent back with the
+ * response of the request which wrote, so the next requests of this client
+ * read from the primary database until the replicas have caught up.
+ * Clients which do not keep cookies read from the replicas.
+ *
+ * @author Kateryna Mironova
+ */
+public class ClientWritesFilter extends OncePerRequestFilter {
+
+    /**
+     * Name of the cookie with the time of the last write.
+     */
+    static final String COOKIE = "users-last-write";
+
+    /**
+     * Lifetime of the cookie, in seconds.
+     */
+    private final int cookieMaxAge;
+
+    /**
+     * Constructor for filter initialization.
+     *
+     * @param stickyAfterWriteMillis time after a write when reads still go
+     *                               to the primary, in milliseconds
+     */
+    public ClientWritesFilter(long stickyAfterWriteMillis) {
+        this.cookieMaxAge = (int) Math.max(1,
+                (stickyAfterWriteMillis + 999) / 1000);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ClientWrites writes = new ClientWrites(lastWriteMillis(request),
+                millis -> {
+                    if (!response.isCommitted()) {
+                        Cookie cookie = new Cookie(COOKIE,
+                                String.valueOf(millis));
+                        cookie.setPath("/");
+                        cookie.setMaxAge(cookieMaxAge);
+                        cookie.setHttpOnly(true);
+                        response.addCookie(cookie);
+                    }
+                });
+        ClientWrites previous = ClientWrites.current();
+        ClientWrites.bind(writes);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ClientWrites.bind(previous);
+        }
+    }
+
+    /**
+     * Reads time of the last write of the client from the cookie.
+     *
+     * @param request request of the client
+     * @return time of the last write in milliseconds (not later than now,
+     *         so a forged cookie cannot keep the client on the primary) or
+     *         0 if the client has no valid cookie
+     */
+    private static long lastWriteMillis(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0L;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()),
+                            System.currentTimeMillis());
+                } catch (NumberFormatException e) {
+                    return 0L;
+                }
+            }
+        }
+        return 0L;
+    }
+}
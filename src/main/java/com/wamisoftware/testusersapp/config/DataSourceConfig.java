@@ -0,0 +1,184 @@
+package com.wamisoftware.testusersapp.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the JDBC connection pools. Pool settings are read from
+ * spring.datasource.hikari properties and checked before the pool is
+ * started, so a misconfigured pool fails the startup instead of being
+ * silently adjusted. The same settings are used for the pools of read
+ * replicas listed in users.datasource.replica-urls.
+ *
+ * @author Kateryna Mironova
+ */
+@Configuration
+public class DataSourceConfig implements DisposableBean {
+
+    /**
+     * Connection pools of the primary database and its replicas.
+     */
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    /**
+     * Creates settings of the connection pool.
+     *
+     * @return pool settings bound to spring.datasource.hikari properties
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig poolConfig() {
+        return new HikariConfig();
+    }
+
+    /**
+     * Creates collector of the connection pool timings.
+     *
+     * @param meterRegistry registry where pool metrics are published
+     * @return pool metrics
+     */
+    @Bean
+    public PoolMetrics poolMetrics(MeterRegistry meterRegistry) {
+        return new PoolMetrics(meterRegistry);
+    }
+
+    /**
+     * Creates data source used by the application. Read-only transactions
+     * are sent to the replicas, everything else to the primary database.
+     * Connection is taken only when the first statement is run, when it is
+     * already known whether the transaction is read-only.
+     *
+     * @param properties             connection settings of database
+     * @param poolConfig             settings of the pools
+     * @param poolMetrics            collector of the primary pool timings
+     * @param meterRegistry          registry where replica pool metrics are
+     *                               published
+     * @param maxConnections         number of connections this application
+     *                               may open to the primary database
+     * @param replicaUrls            JDBC URLs of the replicas
+     * @param replicaUsername        name of the replica database user
+     * @param replicaPassword        password of the replica database user
+     * @param stickyAfterWriteMillis time after a write when reads of the
+     *                               same client still go to the primary, in
+     *                               milliseconds
+     * @return data source used by the application
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+            HikariConfig poolConfig, PoolMetrics poolMetrics,
+            MeterRegistry meterRegistry,
+            @Value("${users.datasource.max-connections:100}") int maxConnections,
+            @Value("${users.datasource.replica-urls:}") List<String> replicaUrls,
+            @Value("${users.datasource.replica.username:${spring.datasource.username}}") String replicaUsername,
+            @Value("${users.datasource.replica.password:${spring.datasource.password}}") String replicaPassword,
+            @Value("${users.datasource.sticky-after-write-ms:1000}") long stickyAfterWriteMillis) {
+        validatePoolSize(poolConfig, maxConnections);
+        HikariConfig primaryConfig = createPoolConfig(poolConfig,
+                properties.determineDriverClassName(), properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword());
+        primaryConfig.setMetricsTrackerFactory(poolMetrics);
+        HikariDataSource primary = new HikariDataSource(primaryConfig);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            HikariConfig replicaConfig = createPoolConfig(poolConfig,
+                    properties.determineDriverClassName(), replicaUrl.trim(),
+                    replicaUsername, replicaPassword);
+            replicaConfig.setPoolName(primaryConfig.getPoolName()
+                    + "-replica-" + replicas.size());
+            replicaConfig.setReadOnly(true);
+            replicaConfig.setMetricsTrackerFactory(
+                    new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(replicaConfig));
+        }
+        pools.add(primary);
+        pools.addAll(replicas);
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                primary, new ArrayList<>(replicas), stickyAfterWriteMillis);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Creates filter which remembers writes of every client, so the client
+     * reads its own writes from the primary database.
+     *
+     * @param stickyAfterWriteMillis time after a write when reads of the
+     *                               same client still go to the primary, in
+     *                               milliseconds
+     * @return filter of the requests
+     */
+    @Bean
+    public ClientWritesFilter clientWritesFilter(
+            @Value("${users.datasource.sticky-after-write-ms:1000}") long stickyAfterWriteMillis) {
+        return new ClientWritesFilter(stickyAfterWriteMillis);
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Creates settings of one pool from the common pool settings.
+     *
+     * @param poolConfig      common settings of the pools
+     * @param driverClassName name of JDBC driver class
+     * @param url             JDBC URL of database
+     * @param username        name of database user
+     * @param password        password of database user
+     * @return settings of the pool
+     */
+    private static HikariConfig createPoolConfig(HikariConfig poolConfig,
+            String driverClassName, String url, String username,
+            String password) {
+        HikariConfig config = new HikariConfig();
+        poolConfig.copyStateTo(config);
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        return config;
+    }
+
+    /**
+     * Checks that pool sizes and timeouts are consistent.
+     *
+     * @param poolConfig     settings of the pool
+     * @param maxConnections number of connections this application may open
+     * @throws IllegalStateException if settings are inconsistent
+     */
+    static void validatePoolSize(HikariConfig poolConfig, int maxConnections) {
+        int maximumPoolSize = poolConfig.getMaximumPoolSize();
+        if (maximumPoolSize < 1 || maximumPoolSize > maxConnections) {
+            throw new IllegalStateException("maximum-pool-size must be "
+                    + "between 1 and " + maxConnections + " but was "
+                    + maximumPoolSize);
+        }
+        if (poolConfig.getMinimumIdle() > maximumPoolSize) {
+            throw new IllegalStateException("minimum-idle "
+                    + poolConfig.getMinimumIdle()
+                    + " is greater than maximum-pool-size " + maximumPoolSize);
+        }
+        long leakDetectionThreshold = poolConfig.getLeakDetectionThreshold();
+        if (leakDetectionThreshold > 0
+                && leakDetectionThreshold >= poolConfig.getMaxLifetime()) {
+            throw new IllegalStateException("leak-detection-threshold must be "
+                    + "less than max-lifetime");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.wamisoftware.testusersapp.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class collecting timings of the JDBC connection pool. Hikari reports to
+ * it every time a connection is acquired, returned or not obtained in time.
+ * The same events are also passed to Micrometer as hikaricp metrics.
+ *
+ * @author Kateryna Mironova
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    /**
+     * Factory of the trackers which publish pool metrics to Micrometer.
+     */
+    private final MetricsTrackerFactory micrometerTrackerFactory;
+
+    /**
+     * Number of acquired connections.
+     */
+    private final LongAdder acquireCount = new LongAdder();
+
+    /**
+     * Total time spent waiting for connections in nanoseconds.
+     */
+    private final LongAdder acquireNanos = new LongAdder();
+
+    /**
+     * Longest time spent waiting for one connection in nanoseconds.
+     */
+    private final LongAccumulator maxAcquireNanos =
+            new LongAccumulator(Math::max, 0);
+
+    /**
+     * Total time connections were held by application in milliseconds.
+     */
+    private final LongAdder usageMillis = new LongAdder();
+
+    /**
+     * Number of requests which did not get a connection in time.
+     */
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * Constructor for metrics initialization.
+     *
+     * @param meterRegistry registry where pool metrics are published
+     */
+    public PoolMetrics(MeterRegistry meterRegistry) {
+        this.micrometerTrackerFactory =
+                new MicrometerMetricsTrackerFactory(meterRegistry);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        IMetricsTracker micrometerTracker =
+                micrometerTrackerFactory.create(poolName, poolStats);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                micrometerTracker.recordConnectionCreatedMillis(
+                        connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+                micrometerTracker.recordConnectionAcquiredNanos(
+                        elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+                micrometerTracker.recordConnectionUsageMillis(
+                        elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+                micrometerTracker.recordConnectionTimeout();
+            }
+
+            @Override
+            public void close() {
+                micrometerTracker.close();
+            }
+        };
+    }
+
+    /**
+     * Function to get number of acquired connections
+     * {@link PoolMetrics#acquireCount}.
+     *
+     * @return number of acquired connections
+     */
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * Function to get average time of waiting for a connection.
+     *
+     * @return average acquire time in milliseconds
+     */
+    public double getAverageAcquireMillis() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : acquireNanos.sum() / (double) count
+                / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Function to get longest time of waiting for a connection
+     * {@link PoolMetrics#maxAcquireNanos}.
+     *
+     * @return maximum acquire time in milliseconds
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Function to get average time of holding a connection.
+     *
+     * @return average usage time in milliseconds
+     */
+    public double getAverageUsageMillis() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : usageMillis.sum() / (double) count;
+    }
+
+    /**
+     * Function to get number of connection timeouts
+     * {@link PoolMetrics#timeoutCount}.
+     *
+     * @return number of requests which did not get a connection in time
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+}
@@ -0,0 +1,61 @@
+package com.wamisoftware.testusersapp.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+/**
+ * Configuration of the reactive (R2DBC) access to database which is
+ * enabled by the "r2dbc" profile. The connection pool is not exposed as a
+ * bean, because a ConnectionFactory bean would turn off the JDBC
+ * DataSource used by JPA.
+ *
+ * @author Kateryna Mironova
+ */
+@Configuration
+@Profile("r2dbc")
+public class R2dbcConfig implements DisposableBean {
+
+    /**
+     * Pool of the reactive connections.
+     */
+    private ConnectionPool connectionPool;
+
+    /**
+     * Creates client to run SQL over the pool of reactive connections.
+     *
+     * @param url         R2DBC URL of database
+     * @param username    name of database user
+     * @param password    password of database user
+     * @param maxPoolSize maximum number of connections in the pool
+     * @return reactive database client
+     */
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(
+            @Value("${users.r2dbc.url}") String url,
+            @Value("${users.r2dbc.username}") String username,
+            @Value("${users.r2dbc.password}") String password,
+            @Value("${users.r2dbc.pool.max-size:10}") int maxPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url)
+                .mutate().option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password).build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .maxSize(maxPoolSize).build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
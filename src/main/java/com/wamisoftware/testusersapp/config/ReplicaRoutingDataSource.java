@@ -0,0 +1,193 @@
+package com.wamisoftware.testusersapp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source which sends read-only transactions to the replicas and
+ * everything else to the primary database. For some time after a client's
+ * write commits, read-only transactions of the same client (see
+ * {@link ClientWrites}) also go to the primary, so the client reads its
+ * change back even if replicas lag behind. Reads of other clients are not
+ * affected. Only transactions which ran a statement that may change data
+ * count as writes.
+ *
+ * The routing key is taken when a connection is requested, so this data
+ * source has to be wrapped in a lazy connection proxy: the transaction
+ * manager asks for a connection before it marks the transaction as
+ * read-only.
+ *
+ * @author Kateryna Mironova
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Lookup key of the primary database.
+     */
+    static final String PRIMARY = "primary";
+
+    /**
+     * Lookup keys of the replicas.
+     */
+    private final List<String> replicaKeys = new ArrayList<>();
+
+    /**
+     * Time after a write when reads still go to the primary, in
+     * milliseconds.
+     */
+    private final long stickyAfterWriteMillis;
+
+    /**
+     * Counter to choose replicas in turn.
+     */
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * Key of the transaction resource which shows that the current
+     * transaction has written something.
+     */
+    private final Object writtenKey = new Object();
+
+    /**
+     * Constructor for data source initialization.
+     *
+     * @param primary                primary database
+     * @param replicas               replicas of the primary database
+     * @param stickyAfterWriteMillis time after a write when reads of the
+     *                               same client still go to the primary, in
+     *                               milliseconds
+     */
+    public ReplicaRoutingDataSource(DataSource primary,
+            List<DataSource> replicas, long stickyAfterWriteMillis) {
+        this.stickyAfterWriteMillis = stickyAfterWriteMillis;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targetDataSources.put(key, replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || replicaKeys.isEmpty()) {
+            return PRIMARY;
+        }
+        ClientWrites writes = ClientWrites.current();
+        if (writes != null && writes.wroteWithin(stickyAfterWriteMillis)) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(),
+                replicaKeys.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trackWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return trackWrites(super.getConnection(username, password));
+    }
+
+    /**
+     * Wraps connection of a writable transaction, so the client is marked
+     * as a writer when the transaction prepares a statement which may
+     * change data. There is nothing to track without replicas or outside
+     * client requests.
+     *
+     * @param connection connection to the primary database
+     * @return connection which tracks writes or the same connection
+     */
+    private Connection trackWrites(Connection connection) {
+        if (replicaKeys.isEmpty() || ClientWrites.current() == null
+                || TransactionSynchronizationManager
+                .isCurrentTransactionReadOnly()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("createStatement") || ((name.equals(
+                            "prepareStatement") || name.equals("prepareCall"))
+                            && mayWrite((String) args[0]))) {
+                        markWritten();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Checks whether the statement may change data. Only plain queries are
+     * known not to; everything else, including queries with data-modifying
+     * common table expressions, counts as a write.
+     *
+     * @param sql text of the statement
+     * @return false if the statement only reads data
+     */
+    static boolean mayWrite(String sql) {
+        String statement = sql.trim();
+        while (statement.startsWith("/*") && statement.contains("*/")) {
+            statement = statement.substring(statement.indexOf("*/") + 2)
+                    .trim();
+        }
+        return !statement.toLowerCase(Locale.ROOT).startsWith("select");
+    }
+
+    /**
+     * Marks the current client as a writer when the current transaction
+     * commits (or at once if there is no transaction).
+     */
+    private void markWritten() {
+        ClientWrites writes = ClientWrites.current();
+        if (writes == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writes.markWritten();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(writtenKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(writtenKey,
+                Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        writes.markWritten();
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager
+                                .unbindResourceIfPossible(writtenKey);
+                    }
+                });
+    }
+}
@@ -0,0 +1,145 @@
+package com.wamisoftware.testusersapp.config;
+
+import com.wamisoftware.testusersapp.Application;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Aspect which times every call of the service and repository methods.
+ * Timers are named users.service and users.repository and tagged with the
+ * class, the method and the thrown exception; percentiles of these timers
+ * are configured by management.metrics.distribution properties. Methods
+ * which return a stream are timed until the stream is closed, so the time
+ * of reading the rows is included.
+ *
+ * @author Kateryna Mironova
+ */
+@Aspect
+@Component
+public class TimingAspect {
+
+    /**
+     * Package of the application classes.
+     */
+    private static final String APPLICATION_PACKAGE =
+            Application.class.getPackage().getName() + ".";
+
+    /**
+     * Registry where the timers are kept.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for aspect initialization.
+     *
+     * @param meterRegistry registry where the timers are kept
+     */
+    public TimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Times call of public service method.
+     *
+     * @param joinPoint called method
+     * @return result of the method
+     * @throws Throwable exception thrown by the method
+     */
+    @Around("execution(public * com.wamisoftware.testusersapp.service..*.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("users.service", joinPoint);
+    }
+
+    /**
+     * Times call of repository method. Only the repositories themselves are
+     * timed, not their custom implementations which they call.
+     *
+     * @param joinPoint called method
+     * @return result of the method
+     * @throws Throwable exception thrown by the method
+     */
+    @Around("execution(* com.wamisoftware.testusersapp.repository..*+.*(..))"
+            + " && target(org.springframework.data.repository.Repository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint)
+            throws Throwable {
+        return time("users.repository", joinPoint);
+    }
+
+    /**
+     * Calls the method and records its duration. If the method returns a
+     * stream, the duration is recorded when the stream is closed.
+     *
+     * @param name      name of the timer
+     * @param joinPoint called method
+     * @return result of the method
+     * @throws Throwable exception thrown by the method
+     */
+    private Object time(String name, ProceedingJoinPoint joinPoint)
+            throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            stop(sample, name, joinPoint, e.getClass().getSimpleName());
+            throw e;
+        }
+        if (result instanceof Stream) {
+            // Streams of Hibernate queries ignore added close handlers, so
+            // the stream is wrapped into a stream which closes it
+            Stream<?> stream = (Stream<?>) result;
+            return StreamSupport.stream(stream.spliterator(),
+                    stream.isParallel()).onClose(stream::close)
+                    .onClose(() -> stop(sample, name, joinPoint, "none"));
+        }
+        stop(sample, name, joinPoint, "none");
+        return result;
+    }
+
+    /**
+     * Records duration of the method call.
+     *
+     * @param sample    sample started before the call
+     * @param name      name of the timer
+     * @param joinPoint called method
+     * @param exception name of the thrown exception or none
+     */
+    private void stop(Timer.Sample sample, String name,
+            ProceedingJoinPoint joinPoint, String exception) {
+        sample.stop(Timer.builder(name)
+                .tag("class", className(joinPoint))
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception).register(meterRegistry));
+    }
+
+    /**
+     * Function to get name of the called class. Repositories are proxies
+     * of their interfaces, so the repository interface is named instead of
+     * the proxy class or the Spring Data interface declaring the method.
+     *
+     * @param joinPoint called method
+     * @return simple name of the called class
+     */
+    private static String className(ProceedingJoinPoint joinPoint) {
+        Class<?> type = ClassUtils.getUserClass(joinPoint.getTarget());
+        if (Proxy.isProxyClass(type)) {
+            for (Class<?> proxied : type.getInterfaces()) {
+                if (proxied.getName().startsWith(APPLICATION_PACKAGE)) {
+                    return proxied.getSimpleName();
+                }
+            }
+            return joinPoint.getSignature().getDeclaringType()
+                    .getSimpleName();
+        }
+        return type.getSimpleName();
+    }
+}
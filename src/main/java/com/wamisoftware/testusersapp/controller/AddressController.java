@@ -0,0 +1,164 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.wamisoftware.testusersapp.dto.AddressMergeResult;
+import com.wamisoftware.testusersapp.dto.AddressUserCount;
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.model.Address;
+import com.wamisoftware.testusersapp.service.AddressService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controller to handle web requests to the addresses.
+ *
+ * @author Kateryna Mironova
+ */
+@RestController
+@RequestMapping("/addresses")
+public class AddressController {
+
+    /**
+     * Service to interact with addresses.
+     */
+    @Autowired
+    private AddressService addressService;
+
+    /**
+     * Executor of the request handlers.
+     */
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    /**
+     * Returns one page of addresses ordered by id.
+     *
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of addresses on the page
+     * @return page of addresses with the token of the next page
+     */
+    @GetMapping("/page")
+    public CompletableFuture<CursorPage<Address>> getAddressesPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> addressService
+                .findPage(cursor, limit));
+    }
+
+    /**
+     * Returns address which has specified id.
+     *
+     * @param addressId id of address to find
+     * @return address which has specified id or not found message if there
+     *         is no address with this id
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Address>> findAddressById(
+            @PathVariable("id") Long addressId) {
+        return requestExecutor.submit(() -> addressService
+                .findById(addressId)
+                .map(address -> ResponseEntity.ok().body(address))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * Finds addresses in the specified country.
+     *
+     * @param country name of the country (case is ignored), e.g. Ukraine
+     * @param cursor  opaque token of the page from the previous response or
+     *                nothing for the first page
+     * @param limit   maximum number of addresses on the page
+     * @return page of found addresses with the token of the next page
+     */
+    @GetMapping("/country")
+    public CompletableFuture<CursorPage<Address>> findByCountry(
+            @RequestParam("country") String country,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> addressService
+                .findByCountry(country, cursor, limit));
+    }
+
+    /**
+     * Finds addresses in the specified city.
+     *
+     * @param city   name of the city (case is ignored), e.g. Kiev
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of addresses on the page
+     * @return page of found addresses with the token of the next page
+     */
+    @GetMapping("/city")
+    public CompletableFuture<CursorPage<Address>> findByCity(
+            @RequestParam("city") String city,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> addressService
+                .findByCity(city, cursor, limit));
+    }
+
+    /**
+     * Returns number of users in every country. The counts may be a few
+     * seconds old.
+     *
+     * @return list of user counts from the largest one
+     */
+    @GetMapping("/counts/countries")
+    public CompletableFuture<List<AddressUserCount>> countUsersByCountry() {
+        return requestExecutor.submit(addressService::countUsersByCountry);
+    }
+
+    /**
+     * Returns number of users in every city. The counts may be a few seconds
+     * old.
+     *
+     * @param country name of the country to count users only in its cities
+     *                or nothing to count in all cities
+     * @return list of user counts from the largest one
+     */
+    @GetMapping("/counts/cities")
+    public CompletableFuture<List<AddressUserCount>> countUsersByCity(
+            @RequestParam(value = "country", required = false)
+                    String country) {
+        return requestExecutor.submit(() -> addressService
+                .countUsersByCity(country));
+    }
+
+    /**
+     * Removes address from database.
+     *
+     * @param addressId id of address in database
+     * @return removed address if there is address with specified id or not
+     *         found message if there is no address with this id
+     */
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Address>> deleteAddress(
+            @PathVariable("id") Long addressId) {
+        return requestExecutor.submit(() -> addressService
+                .deleteById(addressId)
+                .map(address -> ResponseEntity.ok().body(address))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * Merges duplicate addresses which were written before deduplication
+     * into the canonical ones. It is a one-off job which can be run again
+     * if it was interrupted.
+     *
+     * @return number of checked and merged addresses
+     */
+    @PostMapping("/merge-duplicates")
+    public ResponseEntity<AddressMergeResult> mergeDuplicates() {
+        return ResponseEntity.ok().body(addressService.mergeDuplicates());
+    }
+}
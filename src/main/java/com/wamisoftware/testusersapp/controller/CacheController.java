@@ -0,0 +1,101 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wamisoftware.testusersapp.dto.CacheStatistics;
+import com.wamisoftware.testusersapp.dto.RegionStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Controller to inspect the application caches from web.
+ *
+ * @author Kateryna Mironova
+ */
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+
+    /**
+     * Manager of the application caches.
+     */
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Factory of the persistence contexts which owns the Hibernate caches.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Returns usage statistics of the cache with specified name.
+     *
+     * @param name name of the cache
+     * @return statistics of the cache or not found message if there is no
+     *         such cache or caching is turned off
+     */
+    @GetMapping("/{name}")
+    public ResponseEntity<CacheStatistics> getCacheStatistics(
+            @PathVariable("name") String name) {
+        Cache cache = cacheManager.getCache(name);
+        Object nativeCache = cache == null ? null : cache.getNativeCache();
+        if (!(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            return ResponseEntity.notFound().build();
+        }
+        com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache =
+                (com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache;
+        CacheStats stats = caffeineCache.stats();
+        return ResponseEntity.ok().body(new CacheStatistics(name,
+                caffeineCache.estimatedSize(), stats.hitCount(),
+                stats.missCount(), stats.evictionCount()));
+    }
+
+    /**
+     * Returns names of all Hibernate second-level cache regions.
+     *
+     * @return list of region names
+     */
+    @GetMapping("/regions")
+    public List<String> getRegionNames() {
+        return Arrays.asList(entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics().getSecondLevelCacheRegionNames());
+    }
+
+    /**
+     * Returns usage statistics of the Hibernate cache region with specified
+     * name.
+     *
+     * @param name name of the region
+     * @return statistics of the region or not found message if there is no
+     *         such region
+     */
+    @GetMapping("/regions/{name}")
+    public ResponseEntity<RegionStatistics> getRegionStatistics(
+            @PathVariable("name") String name) {
+        CacheRegionStatistics stats;
+        try {
+            stats = entityManagerFactory.unwrap(SessionFactory.class)
+                    .getStatistics().getCacheRegionStatistics(name);
+        } catch (IllegalArgumentException e) {
+            stats = null;
+        }
+        if (stats == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().body(new RegionStatistics(name,
+                stats.getHitCount(), stats.getMissCount(),
+                stats.getPutCount()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.wamisoftware.testusersapp.config.PoolMetrics;
+import com.wamisoftware.testusersapp.dto.PoolStatistics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Controller to inspect the database connection pool from web.
+ *
+ * @author Kateryna Mironova
+ */
+@RestController
+@RequestMapping("/pool")
+public class PoolController {
+
+    /**
+     * Data source whose primary connection pool is inspected.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Collector of the pool timings.
+     */
+    @Autowired
+    private PoolMetrics poolMetrics;
+
+    /**
+     * Returns current state and timings of the connection pool.
+     *
+     * @return statistics of the connection pool
+     * @throws SQLException if the pool cannot be reached
+     */
+    @GetMapping
+    public PoolStatistics getPoolStatistics() throws SQLException {
+        HikariDataSource primary = dataSource.unwrap(HikariDataSource.class);
+        HikariPoolMXBean pool = primary.getHikariPoolMXBean();
+        return new PoolStatistics(primary.getPoolName(),
+                pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(),
+                primary.getMaximumPoolSize(), poolMetrics.getAcquireCount(),
+                poolMetrics.getAverageAcquireMillis(),
+                poolMetrics.getMaxAcquireMillis(),
+                poolMetrics.getTimeoutCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.repository.ReactiveUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Controller to read the users from web without blocking on database. It
+ * is enabled by the "r2dbc" profile and works side by side with
+ * {@link UserController}. Lists are streamed as JSON values one by one,
+ * and the next user is requested from database only after the previous
+ * one is written.
+ *
+ * @author Kateryna Mironova
+ */
+@RestController
+@Profile("r2dbc")
+@RequestMapping("/reactive/users")
+public class ReactiveUserController {
+
+    /**
+     * Repository to read users over R2DBC.
+     */
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    /**
+     * Returns all users from database.
+     *
+     * @return stream of users from database
+     */
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<User> getAllUsers() {
+        return reactiveUserRepository.findAll();
+    }
+
+    /**
+     * Returns user who has specified id.
+     *
+     * @param userId id of user to find
+     * @return user who has specified id or not found message if there is
+     *         no user with this id
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<User>> findUserById(
+            @PathVariable("id") Long userId) {
+        return reactiveUserRepository.findById(userId)
+                .map(user -> ResponseEntity.ok().body(user))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Finds all users that have specified first name and last name.
+     *
+     * @param firstName string with user name
+     * @param lastName  string with user surname
+     * @return stream of users with specified name and surname
+     */
+    @GetMapping(value = "/name", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<User> findByFirstNameAndLastName(
+            @RequestParam("firstName") String firstName,
+            @RequestParam("lastName") String lastName) {
+        return reactiveUserRepository
+                .findByFirstNameAndLastName(firstName, lastName);
+    }
+
+    /**
+     * Finds all users whose birthday is earlier than the specified date.
+     *
+     * @param date date to compare with
+     * @return stream of users whose birthday is earlier than the date
+     */
+    @GetMapping(value = "/olderThan", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<User> findByBirthdayLessThan(@RequestParam("date")
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+        return reactiveUserRepository.findByBirthdayLessThan(date);
+    }
+}
@@ -0,0 +1,112 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.wamisoftware.testusersapp.config.ClientWrites;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Executor of the work of request handlers. By default the work runs on
+ * the servlet thread as usual. When {@code users.async.enabled} is set, it
+ * runs on a bounded pool which is as large as the database connection
+ * pool, so servlet threads are not blocked on JDBC and no more requests
+ * wait for a connection than there are connections. Work which waits for
+ * a slow input, such as a password hash, always runs on the pool, so no
+ * servlet thread waits for the input. Requests which do not fit into the
+ * pool and its queue are rejected. The work runs with the
+ * {@link ClientWrites} of the request, so reads after the client's own
+ * writes are routed the same way on either thread.
+ *
+ * @author Kateryna Mironova
+ */
+@Component
+public class RequestExecutor {
+
+    /**
+     * Whether the work which needs no input runs on the bounded pool.
+     */
+    @Value("${users.async.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Number of threads of the pool.
+     */
+    @Value("${users.async.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int poolSize;
+
+    /**
+     * Maximum number of requests waiting for a thread of the pool.
+     */
+    @Value("${users.async.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * Pool of threads which run the work.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Creates the pool.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable,
+                        "request-" + threadNumber.incrementAndGet()));
+    }
+
+    /**
+     * Stops the pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the work of request handler.
+     *
+     * @param work function which produces the response
+     * @param <T>  type of the response
+     * @return future response
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return CompletableFuture.supplyAsync(ClientWrites.propagate(work),
+                executor);
+    }
+
+    /**
+     * Runs the work of request handler on the pool when its input is ready,
+     * e.g. when the password is hashed. The servlet thread is released at
+     * once instead of waiting for the input, and the work never runs on
+     * the thread which completed the input.
+     *
+     * @param input future input of the work
+     * @param work  function which produces the response from the input
+     * @param <U>   type of the input
+     * @param <T>   type of the response
+     * @return future response, which fails with
+     *         {@link RejectedExecutionException} if the pool and its queue
+     *         are full
+     */
+    public <U, T> CompletableFuture<T> submitAfter(
+            CompletableFuture<U> input, Function<? super U, T> work) {
+        return input.thenApplyAsync(ClientWrites.propagate(work), executor);
+    }
+}
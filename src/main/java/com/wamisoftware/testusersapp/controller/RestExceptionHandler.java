@@ -0,0 +1,61 @@
+package com.wamisoftware.testusersapp.controller;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Handler of the exceptions which are answered the same way by all the
+ * controllers. Handlers of a single controller stay in that controller.
+ *
+ * @author Kateryna Mironova
+ */
+@ControllerAdvice
+public class RestExceptionHandler {
+
+    /**
+     * Answers with bad request message if the request has invalid
+     * parameters (malformed cursor, unknown fields, etc.).
+     *
+     * @param e exception with the description of invalid parameter
+     * @return bad request message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(
+            IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * Answers with conflict message if the change breaks database
+     * constraints, e.g. the address cannot be removed because somebody
+     * lives there.
+     *
+     * @param e exception about the broken constraint
+     * @return conflict message
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolation(
+            DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(e.getMessage());
+    }
+
+    /**
+     * Answers with service unavailable message if there are too many
+     * requests waiting for execution.
+     *
+     * @param e exception of the rejected request
+     * @return service unavailable message
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejectedExecution(
+            RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Too many requests");
+    }
+}
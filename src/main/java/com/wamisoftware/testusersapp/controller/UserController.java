@@ -1,27 +1,62 @@
 package com.wamisoftware.testusersapp.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wamisoftware.testusersapp.dto.BatchImportResult;
+import com.wamisoftware.testusersapp.dto.Credentials;
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.dto.MessagingJob;
 import com.wamisoftware.testusersapp.model.User;
+import com.wamisoftware.testusersapp.service.MessagingService;
+import com.wamisoftware.testusersapp.service.PasswordService;
 import com.wamisoftware.testusersapp.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
-import java.util.Date;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
- * Controller to interact with the users from web.
+ * Controller to interact with the users from web. Handlers which access
+ * database run their work through {@link RequestExecutor}, and passwords
+ * are hashed and verified by {@link PasswordService} on its own pool.
  *
  * @author Kateryna Mironova
  */
@@ -36,70 +71,349 @@ public class UserController {
     private UserService userService;
 
     /**
-     * Returns all users from database.
+     * Executor of the work of request handlers.
+     */
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    /**
+     * Service to hash and verify passwords away from the request threads.
+     */
+    @Autowired
+    private PasswordService passwordService;
+
+    /**
+     * Validator of the changed passwords.
+     */
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Service for sending messages to users.
+     */
+    @Autowired
+    private MessagingService messagingService;
+
+    /**
+     * Mapper to write users to the export stream.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Returns all users from database as one JSON array. There is no limit
+     * on the number of users, so they are written to the response as they
+     * are read from database, page by page, instead of being collected
+     * first.
+     *
+     * @param fields names of the fields to return or nothing to return
+     *               whole users
+     * @return response whose body streams users (or their specified
+     *         fields) from database
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAllUsers(
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        StreamingResponseBody body;
+        if (fields == null) {
+            body = outputStream -> writeJson(outputStream,
+                    objectMapper.writerFor(User.class), true,
+                    userService::findAll);
+        } else {
+            UserService.checkFields(fields);
+            body = outputStream -> writeJson(outputStream,
+                    objectMapper.writer(), true,
+                    consumer -> userService.findAllFields(fields, consumer));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Returns one page of users ordered by id.
+     *
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @param fields names of the fields to return or nothing to return
+     *               whole users
+     * @return page of users (or of their specified fields) with the token
+     *         of the next page
+     */
+    @GetMapping("/page")
+    public CompletableFuture<CursorPage<?>> getUsersPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        return requestExecutor.submit(() -> fields == null
+                ? userService.findPage(cursor, limit)
+                : userService.findPageFields(cursor, limit, fields));
+    }
+
+    /**
+     * Exports all users as newline-delimited JSON. Users are written to the
+     * response as they are read from database.
      *
-     * @return list of users from database
+     * @return response body which streams one user per line
      */
-    @GetMapping("/all")
-    public List<User> getAllUsers() {
-        return userService.findAll();
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportUsers() {
+        return outputStream -> writeJson(outputStream, objectMapper
+                .writerFor(User.class).withRootValueSeparator("\n"), false,
+                userService::exportAll);
     }
 
     /**
-     * Returns user who has specified id.
+     * Writes values from the source to the stream as they are produced.
+     *
+     * @param outputStream stream of the response
+     * @param objectWriter writer of one value
+     * @param array        true to write the values as a JSON array, false
+     *                     to write them one after another
+     * @param source       function which passes every value to the given
+     *                     consumer
+     * @throws IOException if the values cannot be written
+     */
+    private void writeJson(OutputStream outputStream,
+            ObjectWriter objectWriter, boolean array,
+            Consumer<Consumer<Object>> source) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        ObjectWriter writer = objectWriter
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (SequenceWriter values = array
+                ? writer.writeValuesAsArray(generator)
+                : writer.writeValues(generator)) {
+            source.accept(value -> {
+                try {
+                    values.write(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        generator.flush();
+    }
+
+    /**
+     * Returns user who has specified id with the user version as entity tag.
+     * If the If-None-Match header has the current entity tag, only the
+     * version of the user is read and not modified status is returned.
      * @param userId id of user to find
-     * @return user who has specified id or not found message if there is
+     * @param ifNoneMatch entity tags of the user which the client has
+     * @return user who has specified id, not modified message if the
+     *         client has the current user or not found message if there is
      *         no user with this id
      */
     @GetMapping("/{id}")
-    public ResponseEntity<User> findUserById(@PathVariable(value = "id") Long userId) {
-        Optional<User> userOptional = userService.findById(userId);
-        return userOptional.map(user -> ResponseEntity.ok().body(user))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<User>> findUserById(
+            @PathVariable(value = "id") Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) String ifNoneMatch) {
+        return requestExecutor.submit(() -> {
+            if (ifNoneMatch != null) {
+                Optional<Long> version = userService.findVersionById(userId);
+                if (!version.isPresent()) {
+                    return ResponseEntity.notFound().build();
+                }
+                if (anyTagMatches(ifNoneMatch, version.get())) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(eTag(version.get())).build();
+                }
+            }
+            Optional<User> userOptional = userService.findById(userId);
+            return userOptional.map(user -> ResponseEntity.ok()
+                    .eTag(eTag(user.getVersion())).body(user))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        });
     }
 
     /**
-     * Creates new user and saves his data to database.
+     * Returns description of the user who has specified id as plain text.
+     *
+     * @param userId id of user
+     * @return description of the user or not found message if there is no
+     *         user with this id
+     */
+    @GetMapping(value = "/{id}/description",
+            produces = MediaType.TEXT_PLAIN_VALUE)
+    public CompletableFuture<ResponseEntity<String>> findUserDescription(
+            @PathVariable("id") Long userId) {
+        return requestExecutor.submit(() -> userService
+                .findDescriptionById(userId)
+                .map(description -> ResponseEntity.ok().body(description))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * Creates new user and saves his data to database. The password is
+     * hashed on the password pool first, and the user is saved by the
+     * request executor when the hash is ready.
      *
      * @param user user to insert to database
      * @return the saved user
+     * @throws IllegalArgumentException if the user has no password
      */
     @PostMapping
-    public User createUser(@Valid @RequestBody User user) {
-        return userService.save(user);
+    public CompletableFuture<User> createUser(@Valid @RequestBody User user) {
+        if (user.getPassword() == null) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        return requestExecutor.submitAfter(
+                passwordService.hash(user.getPassword()), hash -> {
+                    user.setPassword(hash);
+                    return userService.save(user);
+                });
     }
 
     /**
-     * Updates user from database.
+     * Checks login and password of the user. The password is verified on
+     * the same pool which hashes passwords of the saved users.
+     *
+     * @param credentials login and password of the user
+     * @return no content if the password is right or unauthorized message
+     *         if it is wrong or there is no user with this login
+     */
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<Void>> login(
+            @RequestBody Credentials credentials) {
+        if (credentials.getLogin() == null
+                || credentials.getPassword() == null) {
+            throw new IllegalArgumentException(
+                    "Login and password are required");
+        }
+        return requestExecutor.submit(() -> userService
+                .findPasswordByLogin(credentials.getLogin()))
+                .thenCompose(stored -> passwordService.verify(
+                        credentials.getPassword(), stored.orElse(null)))
+                .thenApply(valid -> valid
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                .<Void>build());
+    }
+
+    /**
+     * Creates many new users at once. The body is either a JSON array or
+     * newline-delimited JSON, and it is read record by record while users
+     * are written to database in batches.
+     *
+     * @param body stream with users to insert to database
+     * @return number of saved users and the list of rejected ones
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/batch", consumes = {
+            MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" })
+    public BatchImportResult createUsers(InputStream body) throws IOException {
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class)
+                .readValues(body)) {
+            return userService.saveAllInBatches(users);
+        }
+    }
+
+    /**
+     * Updates user from database in one statement. The description and the
+     * password are kept if they are not specified in the updated data (they
+     * are not returned with the user). A new password is hashed on the
+     * password pool first.
      * @param userId id of user in database
+     * @param ifMatch entity tag which the user has to have or null
      * @param userDetails data of updated user
      * @return updated user if there is user with specified or not found message
      *         if there is no user with this id
      */
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable("id") Long userId,
+    public CompletableFuture<ResponseEntity<User>> updateUser(
+            @PathVariable("id") Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                    String ifMatch,
             @Valid @RequestBody User userDetails) {
-        Optional<User> userOptional = userService.findById(userId);
-        return userOptional.map(user -> {
-            userDetails.setId(userOptional.get().getId());
-            userService.save(userDetails);
-            return ResponseEntity.ok().body(userDetails);
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+        Long version = expectedVersion(ifMatch);
+        CompletableFuture<String> password = passwordService
+                .hashIfPresent(userDetails.getPassword());
+        return requestExecutor.submitAfter(password, hash -> {
+            userDetails.setPassword(hash);
+            return userService.update(userId, userDetails, version)
+                    .map(user -> ResponseEntity.ok()
+                            .eTag(eTag(user.getVersion())).body(user))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        });
+    }
+
+    /**
+     * Changes the specified attributes of user from database (JSON merge
+     * patch). Only the changed columns are updated.
+     * @param userId id of user in database
+     * @param ifMatch entity tag which the user has to have or null
+     * @param changes attributes to change
+     * @return changed user if there is user with specified or not found
+     *         message if there is no user with this id
+     */
+    @PatchMapping(value = "/{id}", consumes = {
+            MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public CompletableFuture<ResponseEntity<User>> patchUser(
+            @PathVariable("id") Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                    String ifMatch,
+            @RequestBody ObjectNode changes) {
+        Long version = expectedVersion(ifMatch);
+        changes.remove("id");
+        return requestExecutor.submitAfter(hashChangedPassword(changes),
+                hashed -> userService.patch(userId, version, user -> {
+                    try {
+                        objectMapper.readerForUpdating(user).readValue(hashed);
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException(e.getMessage(), e);
+                    }
+                }).map(user -> ResponseEntity.ok()
+                        .eTag(eTag(user.getVersion())).body(user))
+                        .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * Replaces the new plain password in the changes of the user with its
+     * hash. The password is checked before it is hashed, because the hash
+     * is always valid.
+     *
+     * @param changes attributes to change
+     * @return future changes with the hashed password
+     * @throws IllegalArgumentException if the new password is not valid
+     */
+    private CompletableFuture<ObjectNode> hashChangedPassword(
+            ObjectNode changes) {
+        JsonNode password = changes.get("password");
+        if (password == null || !password.isTextual()) {
+            return CompletableFuture.completedFuture(changes);
+        }
+        Set<ConstraintViolation<User>> violations = validator.validateValue(
+                User.class, "password", password.textValue());
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> "password " + v.getMessage())
+                    .collect(Collectors.joining("; ")));
+        }
+        return passwordService.hash(password.textValue())
+                .thenApply(hash -> changes.put("password", hash));
     }
 
     /**
-     * Removes user from database.
+     * Removes user from database in one statement.
      * @param userId id of user in database
+     * @param ifMatch entity tag which the user has to have or null
      * @return removed user if there is user with specified or not found message
      *         if there is no user with this id
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<User> deleteUser(@PathVariable("id") Long userId) {
-        Optional<User> userOptional = userService.findById(userId);
-        return userOptional.map(user -> {
-            userService.delete(userOptional.get());
-            return ResponseEntity.ok().body(user);
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<User>> deleteUser(
+            @PathVariable("id") Long userId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                    String ifMatch) {
+        Long version = expectedVersion(ifMatch);
+        return requestExecutor.submit(() -> userService
+                .deleteById(userId, version)
+                .map(user -> ResponseEntity.ok().body(user))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
     }
 
     /**
@@ -107,43 +421,277 @@ public class UserController {
      *
      * @param firstName string with user name
      * @param lastName  string with user surname
-     * @return list of users with specified name and surname
+     * @param fields    names of the fields to return or nothing to return
+     *                  whole users
+     * @return list of users (or of their specified fields) with specified
+     *         name and surname
      */
     @GetMapping("/name")
-    public List<User> findByFirstNameAndLastName(
+    public CompletableFuture<List<?>> findByFirstNameAndLastName(
             @RequestParam("firstName") String firstName,
-            @RequestParam("lastName") String lastName) {
-        return userService.findByFirstNameAndLastName(firstName, lastName);
+            @RequestParam("lastName") String lastName,
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        return requestExecutor.submit(() -> fields == null ? userService
+                .findByFirstNameAndLastName(firstName, lastName) : userService
+                .findFieldsByFirstNameAndLastName(fields, firstName, lastName));
+    }
+
+    /**
+     * Finds users whose first name or last name starts with the specified
+     * text, ignoring case.
+     *
+     * @param text   beginning of the name or surname
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @return page of found users with the token of the next page
+     */
+    @GetMapping("/search")
+    public CompletableFuture<CursorPage<User>> searchByName(
+            @RequestParam("q") String text,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> userService
+                .searchByName(text, cursor, limit));
+    }
+
+    /**
+     * Finds users whose description matches the full-text search query,
+     * from the most relevant one.
+     *
+     * @param query  search query in web search syntax, e.g.
+     *               "java developer" -junior
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @return page of found users with the matching fragments of their
+     *         descriptions and the token of the next page
+     */
+    @GetMapping("/search/description")
+    public CompletableFuture<CursorPage<DescriptionMatch>> searchDescription(
+            @RequestParam("q") String query,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return requestExecutor.submit(() -> userService
+                .searchDescription(query, cursor, limit));
+    }
+
+    /**
+     * Finds users whose login has specified domain.
+     *
+     * @param emailDomain domain of the login, e.g. gmail.com
+     * @param cursor      opaque token of the page from the previous response
+     *                    or nothing for the first page
+     * @param limit       maximum number of users on the page
+     * @return page of found users with the token of the next page
+     */
+    @GetMapping("/emailDomain")
+    public CompletableFuture<CursorPage<User>> findByEmailDomain(
+            @RequestParam("domain") String emailDomain,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> userService
+                .findByEmailDomain(emailDomain, cursor, limit));
     }
 
     /**
      * Finds all users who specified their address in the system.
      *
-     * @return list of users with addresses
+     * @param fields names of the fields to return or nothing to return
+     *               whole users
+     * @return list of users (or of their specified fields) with addresses
      */
     @GetMapping("/withAddresses")
-    public List<User> findByAddressNotNull() {
-        return userService.findByAddressNotNull();
+    public CompletableFuture<List<?>> findByAddressNotNull(
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        return requestExecutor.submit(() -> fields == null
+                ? userService.findByAddressNotNull()
+                : userService.findFieldsByAddressNotNull(fields));
     }
 
     /**
      * Finds all users whose whose birthday is earlier than the specified date.
      * @param date date to compare with
+     * @param fields names of the fields to return or nothing to return
+     *               whole users
      *
-     * @return list of users birthday is earlier than the specified date
+     * @return list of users (or of their specified fields) birthday is
+     *         earlier than the specified date
      */
     @GetMapping("/olderThan")
-    public List<User> findByBirthdayLessThan(@RequestParam("date")
-                        @DateTimeFormat(pattern = "yyyy-MM-dd") Date date) {
-        return userService.findByBirthdayLessThan(date);
+    public CompletableFuture<List<?>> findByBirthdayLessThan(
+            @RequestParam("date")
+                        @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        return requestExecutor.submit(() -> fields == null
+                ? userService.findByBirthdayLessThan(date)
+                : userService.findFieldsByBirthdayLessThan(fields, date));
+    }
+
+    /**
+     * Finds users whose birthday is in the specified range.
+     *
+     * @param from   beginning of the range (inclusive), e.g. 1990-01-01
+     * @param to     end of the range (inclusive), e.g. 1999-12-31
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @return page of found users ordered by birthday with the token of the
+     *         next page
+     */
+    @GetMapping("/birthdays")
+    public CompletableFuture<CursorPage<User>> findByBirthdayBetween(
+            @RequestParam("from")
+                    @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam("to")
+                    @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> userService
+                .findByBirthdayBetween(from, to, cursor, limit));
     }
 
     /**
-     * "Sends message" to users whose email is Gmail.
+     * Finds users whose age in full years is in the specified range.
+     *
+     * @param minAge minimum age (inclusive) or nothing if there is no minimum
+     * @param maxAge maximum age (inclusive) or nothing if there is no maximum
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @return page of found users from the oldest one with the token of the
+     *         next page
+     */
+    @GetMapping("/age")
+    public CompletableFuture<CursorPage<User>> findByAge(
+            @RequestParam(value = "minAge", required = false) Integer minAge,
+            @RequestParam(value = "maxAge", required = false) Integer maxAge,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> userService
+                .findByAge(minAge, maxAge, cursor, limit));
+    }
+
+    /**
+     * Finds users whose birthday is celebrated within the specified number
+     * of days starting from today.
+     *
+     * @param days   number of days including today (from 1 to 365)
+     * @param cursor opaque token of the page from the previous response or
+     *               nothing for the first page
+     * @param limit  maximum number of users on the page
+     * @return page of found users ordered by the nearest birthday with the
+     *         token of the next page
+     */
+    @GetMapping("/upcomingBirthdays")
+    public CompletableFuture<CursorPage<User>> findUpcomingBirthdays(
+            @RequestParam(value = "days", defaultValue = "7") int days,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return requestExecutor.submit(() -> userService
+                .findUpcomingBirthdays(days, cursor, limit));
+    }
+
+    /**
+     * Starts "sending message" to users whose login has specified domain
+     * (Gmail by default). The messages are sent in background. If too many
+     * jobs are already running, the answer is 503.
+     *
+     * @param emailDomain domain of the logins of the recipients
+     * @return the started job with its id
      */
     @PostMapping("/messaging")
-    public ResponseEntity<User> sendMessageToGmailUsers() {
-        userService.sendMessageToGmailUsers();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<MessagingJob> sendMessageToUsers(
+            @RequestParam(value = "domain", defaultValue = "gmail.com")
+                    String emailDomain) {
+        return ResponseEntity.accepted()
+                .body(messagingService.start(emailDomain));
+    }
+
+    /**
+     * Returns progress of "sending message" job.
+     *
+     * @param jobId id of the job
+     * @return job with its progress and throughput or not found message if
+     *         there is no job with this id
+     */
+    @GetMapping("/messaging/{jobId}")
+    public ResponseEntity<MessagingJob> findMessagingJob(
+            @PathVariable("jobId") String jobId) {
+        return messagingService.findJob(jobId)
+                .map(job -> ResponseEntity.ok().body(job))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Answers with precondition failed message if the user has another
+     * version than the client expected.
+     *
+     * @param e exception about the version mismatch
+     * @return precondition failed message
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(
+            OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(e.getMessage());
+    }
+
+    /**
+     * Creates strong entity tag of the user from the user version.
+     *
+     * @param version version of the user
+     * @return quoted entity tag
+     */
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Checks whether one of the entity tags from If-None-Match header is
+     * the tag of the current user version (weak comparison).
+     *
+     * @param header  value of the header
+     * @param version current version of the user
+     * @return true if the client has the current user
+     */
+    private static boolean anyTagMatches(String header, long version) {
+        String current = eTag(version);
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(current)
+                    || tag.equals("W/" + current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the user version which If-Match header requires (strong
+     * comparison).
+     *
+     * @param header value of the header or null
+     * @return required version, -1 if the tag cannot match any version or
+     *         null if any version is accepted
+     * @throws IllegalArgumentException if the header has several tags
+     */
+    private static Long expectedVersion(String header) {
+        if (header == null || header.trim().equals("*")) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.contains(",")) {
+            throw new IllegalArgumentException(
+                    "If-Match supports only one entity tag");
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+        return -1L;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing the outcome of merging duplicate addresses.
+ *
+ * @author Kateryna Mironova
+ */
+public class AddressMergeResult {
+
+    /**
+     * Number of checked addresses which had no normalized key.
+     */
+    private final int scanned;
+
+    /**
+     * Number of duplicate addresses which were merged into the canonical
+     * ones and removed.
+     */
+    private final int merged;
+
+    /**
+     * Constructor for result initialization.
+     *
+     * @param scanned number of checked addresses
+     * @param merged  number of removed duplicate addresses
+     */
+    @JsonCreator
+    public AddressMergeResult(@JsonProperty("scanned") int scanned,
+            @JsonProperty("merged") int merged) {
+        this.scanned = scanned;
+        this.merged = merged;
+    }
+
+    /**
+     * Function to get number of checked addresses
+     * {@link AddressMergeResult#scanned}.
+     *
+     * @return number of addresses which had no normalized key
+     */
+    public int getScanned() {
+        return scanned;
+    }
+
+    /**
+     * Function to get number of merged addresses
+     * {@link AddressMergeResult#merged}.
+     *
+     * @return number of removed duplicate addresses
+     */
+    public int getMerged() {
+        return merged;
+    }
+}
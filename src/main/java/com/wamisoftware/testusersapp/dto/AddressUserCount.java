@@ -0,0 +1,84 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing the number of users who live in a country or in a
+ * city of the country.
+ *
+ * @author Kateryna Mironova
+ */
+public class AddressUserCount {
+
+    /**
+     * Name of the country.
+     */
+    private final String country;
+
+    /**
+     * Name of the city or null if the users of the whole country are
+     * counted.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String city;
+
+    /**
+     * Number of users.
+     */
+    private final long users;
+
+    /**
+     * Constructor for the count of users in the country.
+     *
+     * @param country name of the country
+     * @param users   number of users
+     */
+    public AddressUserCount(String country, long users) {
+        this(country, null, users);
+    }
+
+    /**
+     * Constructor for the count of users in the city.
+     *
+     * @param country name of the country
+     * @param city    name of the city or null
+     * @param users   number of users
+     */
+    @JsonCreator
+    public AddressUserCount(@JsonProperty("country") String country,
+            @JsonProperty("city") String city,
+            @JsonProperty("users") long users) {
+        this.country = country;
+        this.city = city;
+        this.users = users;
+    }
+
+    /**
+     * Function to get name of the country {@link AddressUserCount#country}.
+     *
+     * @return string with name of the country
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Function to get name of the city {@link AddressUserCount#city}.
+     *
+     * @return string with name of the city or null
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Function to get number of users {@link AddressUserCount#users}.
+     *
+     * @return number of users who live there
+     */
+    public long getUsers() {
+        return users;
+    }
+}
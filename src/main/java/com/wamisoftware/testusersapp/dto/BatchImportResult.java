@@ -0,0 +1,110 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing the outcome of a bulk import of records.
+ *
+ * @author Kateryna Mironova
+ */
+public class BatchImportResult {
+
+    /**
+     * Number of records written to database.
+     */
+    private int imported;
+
+    /**
+     * Records which were rejected.
+     */
+    private final List<Failure> failures = new ArrayList<>();
+
+    /**
+     * Function to get number of written records
+     * {@link BatchImportResult#imported}.
+     *
+     * @return number of records written to database
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * Function to get rejected records {@link BatchImportResult#failures}.
+     *
+     * @return list of rejected records with the reason of rejection
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Registers records written to database.
+     *
+     * @param count number of written records
+     */
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    /**
+     * Registers the rejected record.
+     *
+     * @param index   position of the record in the request body
+     * @param message reason of rejection
+     */
+    public void addFailure(int index, String message) {
+        failures.add(new Failure(index, message));
+    }
+
+    /**
+     * Class representing one rejected record.
+     */
+    public static class Failure {
+
+        /**
+         * Position of the record in the request body (starting from 0).
+         */
+        private final int index;
+
+        /**
+         * Reason of rejection.
+         */
+        private final String message;
+
+        /**
+         * Constructor for failure initialization.
+         *
+         * @param index   position of the record in the request body
+         * @param message reason of rejection
+         */
+        @JsonCreator
+        public Failure(@JsonProperty("index") int index,
+                @JsonProperty("message") String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        /**
+         * Function to get position of the record {@link Failure#index}.
+         *
+         * @return position of the record in the request body
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Function to get reason of rejection {@link Failure#message}.
+         *
+         * @return string with reason of rejection
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
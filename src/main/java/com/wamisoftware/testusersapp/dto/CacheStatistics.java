@@ -0,0 +1,105 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing usage statistics of one cache.
+ *
+ * @author Kateryna Mironova
+ */
+public class CacheStatistics {
+
+    /**
+     * Name of the cache.
+     */
+    private final String name;
+
+    /**
+     * Approximate number of entries in the cache.
+     */
+    private final long size;
+
+    /**
+     * Number of lookups which found an entry.
+     */
+    private final long hitCount;
+
+    /**
+     * Number of lookups which did not find an entry.
+     */
+    private final long missCount;
+
+    /**
+     * Number of entries removed because of size or expiration limits.
+     */
+    private final long evictionCount;
+
+    /**
+     * Constructor for statistics initialization.
+     *
+     * @param name          name of the cache
+     * @param size          approximate number of entries
+     * @param hitCount      number of lookups which found an entry
+     * @param missCount     number of lookups which did not find an entry
+     * @param evictionCount number of evicted entries
+     */
+    @JsonCreator
+    public CacheStatistics(@JsonProperty("name") String name,
+            @JsonProperty("size") long size,
+            @JsonProperty("hitCount") long hitCount,
+            @JsonProperty("missCount") long missCount,
+            @JsonProperty("evictionCount") long evictionCount) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Function to get name of the cache {@link CacheStatistics#name}.
+     *
+     * @return string with name of the cache
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Function to get number of entries {@link CacheStatistics#size}.
+     *
+     * @return approximate number of entries in the cache
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Function to get number of hits {@link CacheStatistics#hitCount}.
+     *
+     * @return number of lookups which found an entry
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Function to get number of misses {@link CacheStatistics#missCount}.
+     *
+     * @return number of lookups which did not find an entry
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Function to get number of evictions
+     * {@link CacheStatistics#evictionCount}.
+     *
+     * @return number of entries removed because of size or expiration
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
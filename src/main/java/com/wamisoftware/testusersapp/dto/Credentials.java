@@ -0,0 +1,56 @@
+package com.wamisoftware.testusersapp.dto;
+
+/**
+ * Class representing login and password of the user who signs in.
+ *
+ * @author Kateryna Mironova
+ */
+public class Credentials {
+
+    /**
+     * Login of the user.
+     */
+    private String login;
+
+    /**
+     * Password of the user.
+     */
+    private String password;
+
+    /**
+     * Function to get login of the user {@link Credentials#login}.
+     *
+     * @return string with login of the user
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * Login of the user {@link Credentials#login} determination procedure.
+     *
+     * @param login string with login of the user
+     */
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    /**
+     * Function to get password of the user {@link Credentials#password}.
+     *
+     * @return string with password of the user
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Password of the user {@link Credentials#password} determination
+     * procedure.
+     *
+     * @param password string with password of the user
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
@@ -0,0 +1,165 @@
+package com.wamisoftware.testusersapp.dto;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Class representing one page of keyset (cursor) pagination.
+ *
+ * @param <T> type of the page items
+ * @author Kateryna Mironova
+ */
+public class CursorPage<T> {
+
+    /**
+     * Items of the current page.
+     */
+    private final List<T> items;
+
+    /**
+     * Opaque token to request the next page or null if this page is the last.
+     */
+    private final String nextCursor;
+
+    /**
+     * Constructor for page initialization.
+     *
+     * @param items      items of the current page
+     * @param nextCursor opaque token of the next page or null
+     */
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Function to get items of the page {@link CursorPage#items}.
+     *
+     * @return list of page items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Function to get token of the next page {@link CursorPage#nextCursor}.
+     *
+     * @return opaque string token or null if there are no more pages
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Creates page from the items which were read with the page size. Only
+     * a full page may be followed by another one, and the cursor of the
+     * next page is built from the key of the last item.
+     *
+     * @param items items read for the page
+     * @param size  number of items which were requested for the page
+     * @param key   function which returns the key of the item
+     * @param <T>   type of the page items
+     * @return page with the token of the next page
+     */
+    public static <T> CursorPage<T> of(List<T> items, int size,
+            ToLongFunction<? super T> key) {
+        return ofKeys(items, size,
+                item -> new long[] { key.applyAsLong(item) });
+    }
+
+    /**
+     * Creates page from the items which were read with the page size, like
+     * {@link CursorPage#of}, for items ordered by a composite key.
+     *
+     * @param items items read for the page
+     * @param size  number of items which were requested for the page
+     * @param keys  function which returns parts of the key of the item
+     * @param <T>   type of the page items
+     * @return page with the token of the next page
+     */
+    public static <T> CursorPage<T> ofKeys(List<T> items, int size,
+            Function<? super T, long[]> keys) {
+        String nextCursor = items.size() < size ? null
+                : encodeCursorKeys(keys.apply(items.get(items.size() - 1)));
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    /**
+     * Checks the requested number of items on the page and caps it.
+     *
+     * @param limit       requested number of items
+     * @param maxPageSize maximum number of items on one page
+     * @return number of items to read for the page
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public static int pageSize(int limit, int maxPageSize) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    /**
+     * Encodes the last seen key to an opaque cursor token.
+     *
+     * @param key identifier of the last item on the page
+     * @return URL-safe string token
+     */
+    public static String encodeCursor(long key) {
+        return encodeCursorKeys(key);
+    }
+
+    /**
+     * Encodes the last seen composite key (e.g. sort column and id) to an
+     * opaque cursor token.
+     *
+     * @param keys parts of the key of the last item on the page
+     * @return URL-safe string token
+     */
+    public static String encodeCursorKeys(long... keys) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * keys.length);
+        for (long key : keys) {
+            buffer.putLong(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes the opaque cursor token back to the last seen key.
+     *
+     * @param cursor token produced by {@link CursorPage#encodeCursor(long)}
+     *               or null for the first page
+     * @return identifier of the last item on the previous page or 0 for
+     *         the first page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static long decodeCursor(String cursor) {
+        return cursor == null ? 0L : decodeCursorKeys(cursor, 1)[0];
+    }
+
+    /**
+     * Decodes the opaque cursor token back to the last seen composite key.
+     *
+     * @param cursor token produced by
+     *               {@link CursorPage#encodeCursorKeys(long...)}
+     * @param count  number of parts of the key
+     * @return parts of the key of the last item on the previous page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static long[] decodeCursorKeys(String cursor, int count) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != Long.BYTES * count) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = buffer.getLong();
+        }
+        return keys;
+    }
+}
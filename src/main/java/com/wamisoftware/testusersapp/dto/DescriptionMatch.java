@@ -0,0 +1,127 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing the user whose description matches the full-text
+ * search query, with the relevance of the match and the matching fragments
+ * of the description.
+ *
+ * @author Kateryna Mironova
+ */
+public class DescriptionMatch {
+
+    /**
+     * Id of the user.
+     */
+    private final Long id;
+
+    /**
+     * Login of the user.
+     */
+    private final String login;
+
+    /**
+     * First name of the user.
+     */
+    private final String firstName;
+
+    /**
+     * Last name of the user.
+     */
+    private final String lastName;
+
+    /**
+     * Relevance of the description to the query (greater is better).
+     */
+    private final float rank;
+
+    /**
+     * Fragments of the description with the matching words wrapped in
+     * &lt;mark&gt; tags. The rest of the text is not escaped.
+     */
+    private final String snippet;
+
+    /**
+     * Constructor for the found user.
+     *
+     * @param id        id of the user
+     * @param login     login of the user
+     * @param firstName first name of the user
+     * @param lastName  last name of the user
+     * @param rank      relevance of the description to the query
+     * @param snippet   fragments of the description with the matching words
+     */
+    @JsonCreator
+    public DescriptionMatch(@JsonProperty("id") Long id,
+            @JsonProperty("login") String login,
+            @JsonProperty("firstName") String firstName,
+            @JsonProperty("lastName") String lastName,
+            @JsonProperty("rank") float rank,
+            @JsonProperty("snippet") String snippet) {
+        this.id = id;
+        this.login = login;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.rank = rank;
+        this.snippet = snippet;
+    }
+
+    /**
+     * Function to get id of the user {@link DescriptionMatch#id}.
+     *
+     * @return id of the user
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Function to get login of the user {@link DescriptionMatch#login}.
+     *
+     * @return string with login of the user
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * Function to get first name of the user
+     * {@link DescriptionMatch#firstName}.
+     *
+     * @return string with first name of the user
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Function to get last name of the user
+     * {@link DescriptionMatch#lastName}.
+     *
+     * @return string with last name of the user
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Function to get relevance of the match {@link DescriptionMatch#rank}.
+     *
+     * @return relevance of the description to the query
+     */
+    public float getRank() {
+        return rank;
+    }
+
+    /**
+     * Function to get matching fragments of the description
+     * {@link DescriptionMatch#snippet}.
+     *
+     * @return string with fragments of the description
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+}
@@ -0,0 +1,239 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class representing the progress of sending messages to users.
+ *
+ * @author Kateryna Mironova
+ */
+public class MessagingJob {
+
+    /**
+     * State of the job.
+     */
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Unique job identifier.
+     */
+    private final String id;
+
+    /**
+     * Domain of the logins of the recipients.
+     */
+    private final String emailDomain;
+
+    /**
+     * Time when the job was started.
+     */
+    private final Date startedAt = new Date();
+
+    /**
+     * Time when the job was finished or null if it is running.
+     */
+    private volatile Date finishedAt;
+
+    /**
+     * State of the job.
+     */
+    private volatile Status status = Status.RUNNING;
+
+    /**
+     * Reason why the recipients could not be read or null if there was no
+     * error.
+     */
+    private volatile String error;
+
+    /**
+     * Whether all recipients were read from database.
+     */
+    private volatile boolean allQueued;
+
+    /**
+     * Number of recipients read from database.
+     */
+    private final AtomicLong queued = new AtomicLong();
+
+    /**
+     * Number of sent messages.
+     */
+    private final AtomicLong sent = new AtomicLong();
+
+    /**
+     * Number of messages which could not be sent.
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Constructor for job initialization.
+     *
+     * @param id          unique job identifier
+     * @param emailDomain domain of the logins of the recipients
+     */
+    public MessagingJob(String id, String emailDomain) {
+        this.id = id;
+        this.emailDomain = emailDomain;
+    }
+
+    /**
+     * Function to get job identifier {@link MessagingJob#id}.
+     *
+     * @return string with unique job identifier
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Function to get domain of recipients {@link MessagingJob#emailDomain}.
+     *
+     * @return domain of the logins of the recipients
+     */
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    /**
+     * Function to get start time {@link MessagingJob#startedAt}.
+     *
+     * @return time when the job was started
+     */
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Function to get finish time {@link MessagingJob#finishedAt}.
+     *
+     * @return time when the job was finished or null if it is running
+     */
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Function to get state of the job {@link MessagingJob#status}.
+     *
+     * @return state of the job
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Function to get reason of the failure {@link MessagingJob#error}.
+     *
+     * @return reason why the recipients could not be read or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Function to get number of read recipients {@link MessagingJob#queued}.
+     *
+     * @return number of recipients read from database
+     */
+    public long getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Function to get number of sent messages {@link MessagingJob#sent}.
+     *
+     * @return number of sent messages
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Function to get number of failed messages {@link MessagingJob#failed}.
+     *
+     * @return number of messages which could not be sent
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Function to get average throughput of the job.
+     *
+     * @return number of sent messages per second since the start
+     */
+    public double getMessagesPerSecond() {
+        long end = finishedAt == null ? System.currentTimeMillis()
+                : finishedAt.getTime();
+        long millis = Math.max(1, end - startedAt.getTime());
+        return sent.get() * 1000.0 / millis;
+    }
+
+    /**
+     * Function to check whether all recipients were read
+     * {@link MessagingJob#allQueued}.
+     *
+     * @return true if all recipients were read from database
+     */
+    @JsonIgnore
+    public boolean isAllQueued() {
+        return allQueued;
+    }
+
+    /**
+     * Registers recipients read from database.
+     *
+     * @param count number of read recipients
+     */
+    public void addQueued(int count) {
+        queued.addAndGet(count);
+    }
+
+    /**
+     * Registers sent messages.
+     *
+     * @param count number of sent messages
+     */
+    public void addSent(int count) {
+        sent.addAndGet(count);
+    }
+
+    /**
+     * Registers messages which could not be sent.
+     *
+     * @param count number of failed messages
+     */
+    public void addFailed(int count) {
+        failed.addAndGet(count);
+    }
+
+    /**
+     * Registers that all recipients were read from database.
+     */
+    public void markAllQueued() {
+        allQueued = true;
+    }
+
+    /**
+     * Registers that the recipients could not be read to the end.
+     *
+     * @param error reason of the failure
+     */
+    public void markFailed(String error) {
+        this.error = error;
+        this.allQueued = true;
+    }
+
+    /**
+     * Finishes the job after all queued messages were processed.
+     */
+    public void finish() {
+        this.finishedAt = new Date();
+        this.status = error == null ? Status.COMPLETED : Status.FAILED;
+    }
+}
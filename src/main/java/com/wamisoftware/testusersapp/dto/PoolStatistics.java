@@ -0,0 +1,178 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing current state and timings of the connection pool.
+ *
+ * @author Kateryna Mironova
+ */
+public class PoolStatistics {
+
+    /**
+     * Name of the pool.
+     */
+    private final String name;
+
+    /**
+     * Number of connections used by application.
+     */
+    private final int active;
+
+    /**
+     * Number of open connections waiting to be used.
+     */
+    private final int idle;
+
+    /**
+     * Number of threads waiting for a connection.
+     */
+    private final int pending;
+
+    /**
+     * Maximum number of connections in the pool.
+     */
+    private final int maxSize;
+
+    /**
+     * Number of acquired connections.
+     */
+    private final long acquireCount;
+
+    /**
+     * Average time of waiting for a connection in milliseconds.
+     */
+    private final double averageAcquireMillis;
+
+    /**
+     * Longest time of waiting for a connection in milliseconds.
+     */
+    private final double maxAcquireMillis;
+
+    /**
+     * Number of requests which did not get a connection in time.
+     */
+    private final long timeoutCount;
+
+    /**
+     * Constructor for statistics initialization.
+     *
+     * @param name                 name of the pool
+     * @param active               number of used connections
+     * @param idle                 number of idle connections
+     * @param pending              number of waiting threads
+     * @param maxSize              maximum number of connections
+     * @param acquireCount         number of acquired connections
+     * @param averageAcquireMillis average acquire time in milliseconds
+     * @param maxAcquireMillis     maximum acquire time in milliseconds
+     * @param timeoutCount         number of connection timeouts
+     */
+    @JsonCreator
+    public PoolStatistics(@JsonProperty("name") String name,
+            @JsonProperty("active") int active,
+            @JsonProperty("idle") int idle,
+            @JsonProperty("pending") int pending,
+            @JsonProperty("maxSize") int maxSize,
+            @JsonProperty("acquireCount") long acquireCount,
+            @JsonProperty("averageAcquireMillis") double averageAcquireMillis,
+            @JsonProperty("maxAcquireMillis") double maxAcquireMillis,
+            @JsonProperty("timeoutCount") long timeoutCount) {
+        this.name = name;
+        this.active = active;
+        this.idle = idle;
+        this.pending = pending;
+        this.maxSize = maxSize;
+        this.acquireCount = acquireCount;
+        this.averageAcquireMillis = averageAcquireMillis;
+        this.maxAcquireMillis = maxAcquireMillis;
+        this.timeoutCount = timeoutCount;
+    }
+
+    /**
+     * Function to get name of the pool {@link PoolStatistics#name}.
+     *
+     * @return string with name of the pool
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Function to get number of used connections
+     * {@link PoolStatistics#active}.
+     *
+     * @return number of connections used by application
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Function to get number of idle connections {@link PoolStatistics#idle}.
+     *
+     * @return number of open connections waiting to be used
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * Function to get number of waiting threads
+     * {@link PoolStatistics#pending}.
+     *
+     * @return number of threads waiting for a connection
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Function to get pool size limit {@link PoolStatistics#maxSize}.
+     *
+     * @return maximum number of connections in the pool
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Function to get number of acquired connections
+     * {@link PoolStatistics#acquireCount}.
+     *
+     * @return number of acquired connections
+     */
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * Function to get average acquire time
+     * {@link PoolStatistics#averageAcquireMillis}.
+     *
+     * @return average time of waiting for a connection in milliseconds
+     */
+    public double getAverageAcquireMillis() {
+        return averageAcquireMillis;
+    }
+
+    /**
+     * Function to get maximum acquire time
+     * {@link PoolStatistics#maxAcquireMillis}.
+     *
+     * @return longest time of waiting for a connection in milliseconds
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    /**
+     * Function to get number of connection timeouts
+     * {@link PoolStatistics#timeoutCount}.
+     *
+     * @return number of requests which did not get a connection in time
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+}
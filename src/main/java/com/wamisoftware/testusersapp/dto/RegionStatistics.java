@@ -0,0 +1,87 @@
+package com.wamisoftware.testusersapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Class representing usage statistics of one Hibernate cache region.
+ *
+ * @author Kateryna Mironova
+ */
+public class RegionStatistics {
+
+    /**
+     * Name of the region.
+     */
+    private final String name;
+
+    /**
+     * Number of lookups which found an entry.
+     */
+    private final long hitCount;
+
+    /**
+     * Number of lookups which did not find an entry.
+     */
+    private final long missCount;
+
+    /**
+     * Number of entries put to the region.
+     */
+    private final long putCount;
+
+    /**
+     * Constructor for statistics initialization.
+     *
+     * @param name      name of the region
+     * @param hitCount  number of lookups which found an entry
+     * @param missCount number of lookups which did not find an entry
+     * @param putCount  number of entries put to the region
+     */
+    @JsonCreator
+    public RegionStatistics(@JsonProperty("name") String name,
+            @JsonProperty("hitCount") long hitCount,
+            @JsonProperty("missCount") long missCount,
+            @JsonProperty("putCount") long putCount) {
+        this.name = name;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+    }
+
+    /**
+     * Function to get name of the region {@link RegionStatistics#name}.
+     *
+     * @return string with name of the region
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Function to get number of hits {@link RegionStatistics#hitCount}.
+     *
+     * @return number of lookups which found an entry
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Function to get number of misses {@link RegionStatistics#missCount}.
+     *
+     * @return number of lookups which did not find an entry
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Function to get number of puts {@link RegionStatistics#putCount}.
+     *
+     * @return number of entries put to the region
+     */
+    public long getPutCount() {
+        return putCount;
+    }
+}
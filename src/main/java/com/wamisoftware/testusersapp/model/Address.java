@@ -1,14 +1,27 @@
 package com.wamisoftware.testusersapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
+import javax.validation.constraints.NotNull;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 /**
  * Class representing the address of user in the system.
@@ -16,38 +29,74 @@ import java.util.Objects;
  * @author Kateryna Mironova
  */
 @Entity
-@Table(name = "addresses", schema = "users_schema")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
+@Table(name = "addresses", schema = "users_schema", indexes = @Index(
+        name = "addresses_normalized_key_idx", columnList = "normalized_key",
+        unique = true))
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Address {
 
+    /**
+     * Runs of whitespace which are replaced by one space in the normalized
+     * key.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     /**
      * Unique address identifier in the system.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "addresses_id_seq")
+    @SequenceGenerator(name = "addresses_id_seq", schema = "users_schema",
+            sequenceName = "addresses_id_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Version of the address which is incremented on every change.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    /**
+     * Normalized country, city, street and home number which identify the
+     * canonical row of the address. Every address is kept only once, so
+     * users who live at the same address share the row. It is null only in
+     * the rows which were written before deduplication and were not merged
+     * yet.
+     */
+    @JsonIgnore
+    @Column(name = "normalized_key")
+    private String normalizedKey;
+
     /**
      * Name of the country in address.
      */
+    @NotNull
     @Column(nullable = false)
     private String country;
 
     /**
      * Name of the city in the country.
      */
+    @NotNull
     @Column(nullable = false)
     private String city;
 
     /**
      * Name of the street in the city.
      */
+    @NotNull
     @Column(nullable = false)
     private String street;
 
     /**
      * Number of the home in the city.
      */
+    @NotNull
     @Column(name = "home_number", nullable = false)
     private String homeNumber;
 
@@ -69,6 +118,72 @@ public class Address {
         this.id = id;
     }
 
+    /**
+     * Function to get address version {@link Address#version}.
+     *
+     * @return number of the address changes
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Address version {@link Address#version} determination procedure.
+     *
+     * @param version number of the address changes
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Function to get normalized key of the address
+     * {@link Address#normalizedKey}.
+     *
+     * @return string which is the same for all spellings of the address
+     */
+    public String getNormalizedKey() {
+        return normalizedKey;
+    }
+
+    /**
+     * Sets normalized key of the address {@link Address#normalizedKey} from
+     * the address parts. It is called before the address is written to
+     * database.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateNormalizedKey() {
+        normalizedKey = normalize(this);
+    }
+
+    /**
+     * Makes normalized key of the address. Parts of the address are trimmed,
+     * runs of whitespace are replaced by one space and letters are made
+     * lower-case. The parts are separated by the unit separator character,
+     * which does not appear in addresses.
+     *
+     * @param address address to normalize
+     * @return normalized key of the address
+     */
+    public static String normalize(Address address) {
+        return normalizePart(address.country) + '\u001f'
+                + normalizePart(address.city) + '\u001f'
+                + normalizePart(address.street) + '\u001f'
+                + normalizePart(address.homeNumber);
+    }
+
+    /**
+     * Normalizes one part of the address.
+     *
+     * @param part part of the address or null
+     * @return normalized part or empty string for null
+     */
+    private static String normalizePart(String part) {
+        return part == null ? "" : WHITESPACE.matcher(part.trim())
+                .replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Function to get country from address {@link Address#country}.
      *
@@ -1,19 +1,34 @@
 package com.wamisoftware.testusersapp.model;
 
-import javax.persistence.CascadeType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
+import javax.validation.Valid;
 import javax.validation.constraints.Email;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Past;
 import javax.validation.constraints.Size;
-import java.util.Date;
+import javax.validation.groups.Default;
+import java.time.LocalDate;
 import java.util.Objects;
 
 /**
@@ -22,61 +37,125 @@ import java.util.Objects;
  * @author Kateryna Mironova
  */
 @Entity
-@Table(name = "users", schema = "users_schema")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@DynamicUpdate
+@Table(name = "users", schema = "users_schema", indexes = {
+        @Index(name = "users_name_idx", columnList = "first_name, last_name"),
+        @Index(name = "users_email_domain_idx",
+                columnList = "email_domain, id"),
+        @Index(name = "users_address_id_idx", columnList = "address_id"),
+        @Index(name = "users_birthday_idx", columnList = "birthday, id"),
+        @Index(name = "users_birth_month_day_idx",
+                columnList = "birth_month_day, id") })
 public class User {
 
+    /**
+     * Validation group of the checks which a stored user has to pass but
+     * the data of a replacing update does not, because the values missing
+     * from the update are kept from the stored user.
+     */
+    public interface Stored extends Default {
+    }
+
     /**
      * Unique user identifier in the system.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", schema = "users_schema",
+            sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Version of the user which is incremented on every change. It is used
+     * for optimistic locking and as the entity tag of the user.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     /**
      * First name of the user.
      */
+    @NotNull
     @Column(name = "first_name", nullable = false)
     private String firstName;
 
     /**
      * Last name of the user.
      */
+    @NotNull
     @Column(name = "last_name", nullable = false)
     private String lastName;
 
     /**
      * Date of user birth.
      */
+    @NotNull
     @Past
     @Column(nullable = false)
-    private Date birthday;
+    private LocalDate birthday;
+
+    /**
+     * Month and day of the user birth as a number (month * 100 + day), which
+     * is kept in its own indexed column to find upcoming birthdays without
+     * reading every user.
+     */
+    @JsonIgnore
+    @Column(name = "birth_month_day", nullable = false)
+    private int birthMonthDay;
 
     /**
      * Login in form of email which is unique for every user.
      */
+    @NotNull
     @Email
     @Size(min = 5)
     @Column(nullable = false, unique = true)
     private String login;
 
     /**
-     * User's password in the system.
+     * Lower-case domain of the login (the part after '@'), which is kept
+     * in its own indexed column to find users by domain.
      */
+    @JsonIgnore
+    @Column(name = "email_domain", nullable = false)
+    private String emailDomain;
+
+    /**
+     * User's password in the system. It is stored hashed and it is never
+     * written to JSON, so a user read from the service has no password and
+     * the stored one is kept when such user is sent back (so it may be
+     * missing only from the data of an update).
+     */
+    @NotNull(groups = Stored.class)
     @Size(min = 5)
     @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     /**
-     * Description of the user with additional information.
+     * Description of the user with additional information. It is loaded
+     * only when it is read and it is not written to JSON with the rest of
+     * the user (it is served separately).
      */
     @Size(max = 25000)
-    @Column
+    @Column(length = 25000)
+    @Basic(fetch = FetchType.LAZY)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String description;
 
     /**
-     * Address of the user.
+     * Address of the user. Addresses are shared by the users who live at
+     * the same address, so they are not written together with the user but
+     * are resolved to the canonical row by
+     * {@link com.wamisoftware.testusersapp.service.AddressService}.
      */
-    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Valid
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "address_id")
     private Address address;
 
@@ -104,6 +183,24 @@ public class User {
         this.id = id;
     }
 
+    /**
+     * Function to get user version {@link User#version}.
+     *
+     * @return number of the user changes
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * User version {@link User#version} determination procedure.
+     *
+     * @param version number of the user changes
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Function to get user first name {@link User#firstName}.
      *
@@ -145,7 +242,7 @@ public class User {
      *
      * @return date of user's birthday
      */
-    public Date getBirthday() {
+    public LocalDate getBirthday() {
         return birthday;
     }
 
@@ -155,10 +252,29 @@ public class User {
      * @param birthday date of user's birthday (date has to be earlier than
      *                 current date)
      */
-    public void setBirthday(Date birthday) {
+    public void setBirthday(LocalDate birthday) {
         this.birthday = birthday;
     }
 
+    /**
+     * Function to get month and day of user birth {@link User#birthMonthDay}.
+     *
+     * @return month * 100 + day of user's birthday
+     */
+    public int getBirthMonthDay() {
+        return birthMonthDay;
+    }
+
+    /**
+     * Makes number from month and day of the date.
+     *
+     * @param date date
+     * @return month * 100 + day of the date, e.g. 1231 for December 31
+     */
+    public static int monthDay(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
     /**
      * Function to get user's login {@link User#login}.
      *
@@ -178,6 +294,39 @@ public class User {
         this.login = login;
     }
 
+    /**
+     * Function to get domain of user's login {@link User#emailDomain}.
+     *
+     * @return lower-case string with domain of user's login
+     */
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    /**
+     * Sets domain of user's login {@link User#emailDomain} from the login
+     * and month and day of user birth {@link User#birthMonthDay} from the
+     * birthday before the user is written to database.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateDerivedColumns() {
+        emailDomain = extractEmailDomain(login);
+        birthMonthDay = birthday == null ? 0 : monthDay(birthday);
+    }
+
+    /**
+     * Extracts lower-case domain from the email.
+     *
+     * @param email email address
+     * @return part of the email after the last '@' in lower case or empty
+     *         string if there is no '@'
+     */
+    public static String extractEmailDomain(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).trim().toLowerCase();
+    }
+
     /**
      * Function to get user's password {@link User#password}.
      *
@@ -244,8 +393,8 @@ public class User {
         User user = (User) o;
         return id.equals(user.id) && firstName.equals(user.firstName)
                 && lastName.equals(user.lastName) && birthday
-                .equals(user.birthday) && login.equals(user.login) && password
-                .equals(user.password) && Objects
+                .equals(user.birthday) && login.equals(user.login) && Objects
+                .equals(password, user.password) && Objects
                 .equals(description, user.description) && Objects
                 .equals(address, user.address);
     }
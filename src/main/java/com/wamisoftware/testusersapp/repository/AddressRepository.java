@@ -1,10 +1,15 @@
 package com.wamisoftware.testusersapp.repository;
 
+import com.wamisoftware.testusersapp.dto.AddressUserCount;
 import com.wamisoftware.testusersapp.model.Address;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,13 +18,134 @@ import java.util.List;
  * @author Kateryna Mironova
  */
 @Repository
-public interface AddressRepository extends JpaRepository<Address, Long> {
+public interface AddressRepository extends JpaRepository<Address, Long>,
+        AddressRepositoryCustom {
 
     /**
-     * Finds all addresses in Ukraine.
+     * Finds ids of the canonical addresses which have specified normalized
+     * keys. The query is served by the unique normalized key index.
      *
-     * @return list of addresses in Ukraine
+     * @param keys normalized keys of the addresses
+     * @return list of pairs of normalized key and address id
      */
-    @Query("select a from Address a where a.country is 'Ukraine'")
-    List<Address> findWhereCountryIsUkraine();
+    @Query("select a.normalizedKey, a.id from Address a "
+            + "where a.normalizedKey in :keys")
+    List<Object[]> findIdsByNormalizedKeyIn(
+            @Param("keys") Collection<String> keys);
+
+    /**
+     * Finds the next page of addresses which were written before
+     * deduplication (they have no normalized key), ordered by id.
+     *
+     * @param id       id of the last address on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of addresses without normalized key
+     */
+    List<Address> findByNormalizedKeyIsNullAndIdGreaterThanOrderByIdAsc(
+            Long id, Pageable pageable);
+
+    /**
+     * Removes addresses which have specified ids in one statement.
+     *
+     * @param ids ids of the addresses to remove
+     * @return number of removed addresses
+     */
+    @Modifying
+    @Query("delete from Address a where a.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes address which has specified id in one statement unless
+     * somebody lives there. The check and the removal are not separated,
+     * so a user who moves in meanwhile either prevents the removal or fails
+     * on the foreign key; the user never references a removed address.
+     *
+     * @param id id of the address to remove
+     * @return 1 if the address was removed or 0 if there is no such
+     *         address or it is used by users
+     */
+    @Modifying
+    @Query("delete from Address a where a.id = :id and not exists "
+            + "(select u.id from User u where u.address.id = a.id)")
+    int deleteUnusedById(@Param("id") Long id);
+
+    /**
+     * Finds the next page of addresses ordered by id (keyset pagination).
+     *
+     * @param id       id of the last address on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of addresses whose id is greater than the specified one
+     */
+    List<Address> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Finds the next page of addresses in the specified country, ignoring
+     * case. The query is a range scan of the (lower(country), id) index from
+     * data.sql.
+     *
+     * @param country  name of the country
+     * @param id       id of the last address on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of found addresses ordered by id
+     */
+    @Query("select a from Address a where lower(a.country) = lower(:country) "
+            + "and a.id > :id order by a.id")
+    List<Address> findByCountry(@Param("country") String country,
+            @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Finds the next page of addresses in the specified city, ignoring case.
+     * The query is a range scan of the (lower(city), id) index from
+     * data.sql.
+     *
+     * @param city     name of the city
+     * @param id       id of the last address on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of found addresses ordered by id
+     */
+    @Query("select a from Address a where lower(a.city) = lower(:city) "
+            + "and a.id > :id order by a.id")
+    List<Address> findByCity(@Param("city") String city,
+            @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Counts users in every country, ignoring case of the country names.
+     * Users are grouped by database.
+     *
+     * @return list of user counts from the largest one
+     */
+    @Query("select new com.wamisoftware.testusersapp.dto.AddressUserCount("
+            + "min(a.country), count(u)) from User u join u.address a "
+            + "group by lower(a.country) "
+            + "order by count(u) desc, lower(a.country)")
+    List<AddressUserCount> countUsersByCountry();
+
+    /**
+     * Counts users in every city, ignoring case of the country and city
+     * names. Users are grouped by database.
+     *
+     * @return list of user counts from the largest one
+     */
+    @Query("select new com.wamisoftware.testusersapp.dto.AddressUserCount("
+            + "min(a.country), min(a.city), count(u)) "
+            + "from User u join u.address a "
+            + "group by lower(a.country), lower(a.city) "
+            + "order by count(u) desc, lower(a.country), lower(a.city)")
+    List<AddressUserCount> countUsersByCity();
+
+    /**
+     * Counts users in every city of the specified country, ignoring case of
+     * the country and city names. Users are grouped by database.
+     *
+     * @param country name of the country
+     * @return list of user counts from the largest one
+     */
+    @Query("select new com.wamisoftware.testusersapp.dto.AddressUserCount("
+            + "min(a.country), min(a.city), count(u)) "
+            + "from User u join u.address a "
+            + "where lower(a.country) = lower(:country) "
+            + "group by lower(a.country), lower(a.city) "
+            + "order by count(u) desc, lower(a.city)")
+    List<AddressUserCount> countUsersByCityInCountry(
+            @Param("country") String country);
 }
@@ -0,0 +1,25 @@
+package com.wamisoftware.testusersapp.repository;
+
+import com.wamisoftware.testusersapp.model.Address;
+
+import java.util.Optional;
+
+/**
+ * Custom operations with the addresses table which are not generated by
+ * Spring Data.
+ *
+ * @author Kateryna Mironova
+ */
+public interface AddressRepositoryCustom {
+
+    /**
+     * Inserts the address as a new canonical row unless there is already a
+     * row with the same normalized key. The statement does not fail if
+     * another transaction inserts the same address concurrently.
+     *
+     * @param address address to insert
+     * @return id of the inserted address or nothing if the address already
+     *         exists
+     */
+    Optional<Long> insertIfAbsent(Address address);
+}
@@ -0,0 +1,76 @@
+package com.wamisoftware.testusersapp.repository;
+
+import com.wamisoftware.testusersapp.model.Address;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementation of the custom operations with the addresses table. The
+ * insert runs as a native PostgreSQL statement with RETURNING, which
+ * Hibernate treats as a query, so cached query results are evicted here
+ * after the transaction commits.
+ *
+ * @author Kateryna Mironova
+ */
+public class AddressRepositoryImpl implements AddressRepositoryCustom {
+
+    /**
+     * Statement which inserts the address if its normalized key is new.
+     */
+    private static final String INSERT_ADDRESS = "insert into "
+            + "users_schema.addresses (id, version, normalized_key, country, "
+            + "city, street, home_number) values ("
+            + "nextval('users_schema.addresses_id_seq'), 0, :key, :country, "
+            + ":city, :street, :homeNumber) "
+            + "on conflict (normalized_key) do nothing returning id";
+
+    /**
+     * Persistence context to run native statements.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Long> insertIfAbsent(Address address) {
+        List<?> result = entityManager.createNativeQuery(INSERT_ADDRESS)
+                .setParameter("key", Address.normalize(address))
+                .setParameter("country", address.getCountry())
+                .setParameter("city", address.getCity())
+                .setParameter("street", address.getStreet())
+                .setParameter("homeNumber", address.getHomeNumber())
+                .getResultList();
+        if (result.isEmpty()) {
+            return Optional.empty();
+        }
+        evictQueriesAfterCommit();
+        return Optional.of(((Number) result.get(0)).longValue());
+    }
+
+    /**
+     * Removes cached query results from the second-level cache when the
+     * current transaction commits (or at once if there is no transaction),
+     * so queries of addresses see the inserted row.
+     */
+    private void evictQueriesAfterCommit() {
+        Cache cache = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getCache();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            cache.evictDefaultQueryRegion();
+                        }
+                    });
+        } else {
+            cache.evictDefaultQueryRegion();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.wamisoftware.testusersapp.repository;
+
+import com.wamisoftware.testusersapp.model.Address;
+import com.wamisoftware.testusersapp.model.User;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Class performing non-blocking read operations with the users table in
+ * database over R2DBC. Users are read together with their addresses.
+ *
+ * @author Kateryna Mironova
+ */
+@Repository
+@Profile("r2dbc")
+public class ReactiveUserRepository {
+
+    /**
+     * Columns of user and address selected by every query.
+     */
+    private static final String SELECT_USERS = "select u.id, u.first_name, "
+            + "u.last_name, u.birthday, u.login, u.password, u.address_id, "
+            + "a.country, a.city, a.street, a.home_number "
+            + "from users_schema.users u "
+            + "left join users_schema.addresses a on a.id = u.address_id ";
+
+    /**
+     * Client to run SQL over reactive connections.
+     */
+    @Autowired
+    private DatabaseClient reactiveDatabaseClient;
+
+    /**
+     * Number of rows read from database at once.
+     */
+    @Value("${users.r2dbc.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Finds all users ordered by id.
+     *
+     * @return flux of all users
+     */
+    public Flux<User> findAll() {
+        return reactiveDatabaseClient.execute(SELECT_USERS + "order by u.id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveUserRepository::toUser).all();
+    }
+
+    /**
+     * Finds user who has specified id.
+     *
+     * @param id id of the user
+     * @return user with specified id or nothing if there is no such user
+     */
+    public Mono<User> findById(Long id) {
+        return reactiveDatabaseClient.execute(SELECT_USERS + "where u.id = :id")
+                .bind("id", id).map(ReactiveUserRepository::toUser).one();
+    }
+
+    /**
+     * Finds all users that have specified first name and last name.
+     *
+     * @param firstName string with user name
+     * @param lastName  string with user surname
+     * @return flux of users with specified name and surname
+     */
+    public Flux<User> findByFirstNameAndLastName(String firstName,
+            String lastName) {
+        return reactiveDatabaseClient.execute(SELECT_USERS
+                + "where u.first_name = :firstName "
+                + "and u.last_name = :lastName order by u.id")
+                .bind("firstName", firstName).bind("lastName", lastName)
+                .map(ReactiveUserRepository::toUser).all();
+    }
+
+    /**
+     * Finds all users whose birthday is earlier than the specified date.
+     *
+     * @param date date to compare with
+     * @return flux of users whose birthday is earlier than the date
+     */
+    public Flux<User> findByBirthdayLessThan(LocalDate date) {
+        return reactiveDatabaseClient.execute(SELECT_USERS
+                + "where u.birthday < :date order by u.id")
+                .bind("date", date)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveUserRepository::toUser).all();
+    }
+
+    /**
+     * Creates user from the selected row.
+     *
+     * @param row row with user and address columns
+     * @return user with address (if it is specified)
+     */
+    private static User toUser(Row row) {
+        User user = new User();
+        user.setId(row.get("id", Long.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setBirthday(row.get("birthday", LocalDate.class));
+        user.setLogin(row.get("login", String.class));
+        user.setPassword(row.get("password", String.class));
+        Long addressId = row.get("address_id", Long.class);
+        if (addressId != null) {
+            Address address = new Address();
+            address.setId(addressId);
+            address.setCountry(row.get("country", String.class));
+            address.setCity(row.get("city", String.class));
+            address.setStreet(row.get("street", String.class));
+            address.setHomeNumber(row.get("home_number", String.class));
+            user.setAddress(address);
+        }
+        return user;
+    }
+}
@@ -1,44 +1,159 @@
 package com.wamisoftware.testusersapp.repository;
 
+import com.wamisoftware.testusersapp.model.Address;
 import com.wamisoftware.testusersapp.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Date;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
- * Class performing operations with the users table in database.
+ * Class performing operations with the users table in database. List
+ * queries fetch the address of every user with a join, so the addresses are
+ * not loaded one by one when the users are serialized.
  *
  * @author Kateryna Mironova
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>,
+        UserRepositoryCustom {
 
     /**
-     * Finds all users that have specified first name and last name.
+     * Finds the next page of users ordered by id (keyset pagination). The
+     * query seeks on the primary key index, so it costs the same on any page.
+     *
+     * @param id       id of the last user on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of users whose id is greater than the specified one
+     */
+    @EntityGraph(attributePaths = "address")
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Finds all users that have specified first name and last name. Results
+     * are kept in the query cache.
      *
      * @param firstName string with user name
      * @param lastName  string with user surname
      * @return list of users with specified name and surname
      */
+    @EntityGraph(attributePaths = "address")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<User> findByFirstNameAndLastName(String firstName, String lastName);
 
     /**
-     * Finds all users who has email in Gmail.
+     * Finds the next page of users whose first name or last name starts
+     * with the specified prefix, ignoring case. The query is served by the
+     * lower(first_name) and lower(last_name) indexes from data.sql.
+     *
+     * @param prefix   lower-case prefix with LIKE special characters escaped
+     *                 by '!'
+     * @param id       id of the last user on the previous page
+     * @param pageable page size limit (page number is expected to be 0)
+     * @return list of found users ordered by id
+     */
+    @EntityGraph(attributePaths = "address")
+    @Query("select u from User u where u.id > :id and ("
+            + "lower(u.firstName) like concat(:prefix, '%') escape '!' or "
+            + "lower(u.lastName) like concat(:prefix, '%') escape '!') "
+            + "order by u.id")
+    List<User> searchByNamePrefix(@Param("prefix") String prefix,
+            @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Finds the next page of users whose login has specified domain. The
+     * query is a range scan of the (email_domain, id) index.
+     *
+     * @param emailDomain lower-case domain of the login
+     * @param id          id of the last user on the previous page
+     * @param pageable    page size limit (page number is expected to be 0)
+     * @return list of found users ordered by id
+     */
+    @EntityGraph(attributePaths = "address")
+    List<User> findByEmailDomainAndIdGreaterThanOrderByIdAsc(
+            String emailDomain, Long id, Pageable pageable);
+
+    /**
+     * Finds description of the user without loading the user.
+     *
+     * @param id id of the user
+     * @return description of the user (empty string if the user has no
+     *         description) or nothing if there is no user with this id
+     */
+    @Query("select coalesce(u.description, '') from User u where u.id = :id")
+    Optional<String> findDescriptionById(@Param("id") Long id);
+
+    /**
+     * Finds stored password hash of the user without loading the user.
+     *
+     * @param login login of the user
+     * @return password hash of the user or nothing if there is no user with
+     *         this login
+     */
+    @Query("select u.password from User u where u.login = :login")
+    Optional<String> findPasswordByLogin(@Param("login") String login);
+
+    /**
+     * Finds version of the user without loading the user.
      *
-     * @return stream of users who has email in Gmail
+     * @param id id of the user
+     * @return version of the user or nothing if there is no user with this
+     *         id
      */
-    @Query("select u from User u where u.login like '%@gmail.com%'")
-    Stream<User> findWhereLoginIsGmail();
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Checks whether somebody lives at the address.
+     *
+     * @param addressId id of the address
+     * @return true if some user has the address
+     */
+    boolean existsByAddressId(Long addressId);
+
+    /**
+     * Moves users from the specified addresses to another address in one
+     * statement. The versions of the moved users are incremented, because
+     * their representation changes.
+     *
+     * @param address address to move the users to
+     * @param ids     ids of the addresses to move the users from
+     * @return number of moved users
+     */
+    @Modifying
+    @Query("update versioned User u set u.address = :address "
+            + "where u.address.id in :ids")
+    int moveToAddress(@Param("address") Address address,
+            @Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams all users ordered by id. Rows are read from a server-side
+     * cursor in chunks of {@code hibernate.jdbc.fetch_size}, so the stream
+     * has to be consumed inside a transaction and closed afterwards.
+     *
+     * @return stream of all users
+     */
+    @EntityGraph(attributePaths = "address")
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
 
     /**
      * Finds all users who specified their address in the system.
      *
      * @return list of users with addresses
      */
+    @EntityGraph(attributePaths = "address")
     List<User> findByAddressNotNull();
 
     /**
@@ -47,5 +162,52 @@ public interface UserRepository extends JpaRepository<User, Long> {
      *
      * @return list of users birthday is earlier than the specified date
      */
-    List<User> findByBirthdayLessThan(Date date);
+    @EntityGraph(attributePaths = "address")
+    List<User> findByBirthdayLessThan(LocalDate date);
+
+    /**
+     * Finds the next page of users whose birthday is in the range, ordered
+     * by birthday and id (keyset pagination). The query is a range scan of
+     * the (birthday, id) index which starts at the last seen user.
+     *
+     * @param afterBirthday birthday of the last user on the previous page
+     *                      or the beginning of the range for the first page
+     * @param afterId       id of the last user on the previous page or 0 for
+     *                      the first page
+     * @param to            end of the range (inclusive)
+     * @param pageable      page size limit (page number is expected to be 0)
+     * @return list of found users
+     */
+    @EntityGraph(attributePaths = "address")
+    @Query("select u from User u where u.birthday >= :afterBirthday "
+            + "and u.birthday <= :to and (u.birthday > :afterBirthday "
+            + "or u.id > :afterId) order by u.birthday, u.id")
+    List<User> findByBirthdayBetween(
+            @Param("afterBirthday") LocalDate afterBirthday,
+            @Param("afterId") Long afterId, @Param("to") LocalDate to,
+            Pageable pageable);
+
+    /**
+     * Finds the next page of users whose month and day of birth is in the
+     * range, ordered by month and day of birth and id (keyset pagination).
+     * The query is a range scan of the (birth_month_day, id) index which
+     * starts at the last seen user.
+     *
+     * @param afterMonthDay month and day of birth of the last user on the
+     *                      previous page or the beginning of the range for
+     *                      the first page (month * 100 + day)
+     * @param afterId       id of the last user on the previous page or 0 for
+     *                      the first page
+     * @param to            end of the range (inclusive)
+     * @param pageable      page size limit (page number is expected to be 0)
+     * @return list of found users
+     */
+    @EntityGraph(attributePaths = "address")
+    @Query("select u from User u where u.birthMonthDay >= :afterMonthDay "
+            + "and u.birthMonthDay <= :to and (u.birthMonthDay > :afterMonthDay "
+            + "or u.id > :afterId) order by u.birthMonthDay, u.id")
+    List<User> findByBirthMonthDayBetween(
+            @Param("afterMonthDay") int afterMonthDay,
+            @Param("afterId") Long afterId, @Param("to") int to,
+            Pageable pageable);
 }
@@ -0,0 +1,79 @@
+package com.wamisoftware.testusersapp.repository;
+
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Class performing operations with the users table which cannot be derived
+ * by Spring Data.
+ *
+ * @author Kateryna Mironova
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Finds only the specified columns of users. Neither entities nor the
+     * columns which were not asked for are loaded.
+     *
+     * @param fields names of the {@link User} attributes to select
+     * @param spec   condition of the users to find
+     * @param sort   order of the found users
+     * @param limit  maximum number of found users or 0 for no limit
+     * @return list of maps from attribute name to its value, one per user
+     */
+    List<Map<String, Object>> findFields(Collection<String> fields,
+            Specification<User> spec, Sort sort, int limit);
+
+    /**
+     * Replaces columns of the user who has specified id in one statement,
+     * without reading the user first. The description and the password are
+     * kept if the new ones are null. The address of the user is expected to
+     * be already saved (it is referenced by id). The version of the user is
+     * incremented.
+     *
+     * @param id      id of the user to update
+     * @param user    new values of the user columns
+     * @param version expected version of the user or null to update any
+     *                version
+     * @return updated user as stored, with the new version and the stored
+     *         address, or nothing if there is no user with this id and
+     *         version
+     */
+    Optional<User> updateByIdReturning(Long id, User user, Long version);
+
+    /**
+     * Removes user who has specified id in one statement, without reading
+     * the user first. The address of the user is kept.
+     *
+     * @param id      id of the user to remove
+     * @param version expected version of the user or null to remove any
+     *                version
+     * @return removed user with the address or nothing if there is no user
+     *         with this id and version
+     */
+    Optional<User> deleteByIdReturning(Long id, Long version);
+
+    /**
+     * Finds the next page of users whose description matches the full-text
+     * search query, from the most relevant one. The query is served by the
+     * GIN index of the description_tsv column, and only the matching
+     * fragments of the found descriptions leave the database.
+     *
+     * @param query     search query in web search syntax (words, "quoted
+     *                  phrases", or, -excluded words)
+     * @param afterRank relevance of the last user on the previous page or
+     *                  null for the first page
+     * @param afterId   id of the last user on the previous page
+     * @param limit     maximum number of found users
+     * @return list of found users ordered by relevance and id
+     */
+    List<DescriptionMatch> searchDescription(String query, Float afterRank,
+            long afterId, int limit);
+}
@@ -0,0 +1,273 @@
+package com.wamisoftware.testusersapp.repository;
+
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.model.Address;
+import com.wamisoftware.testusersapp.model.User;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.type.FloatType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Implementation of the custom operations with the users table. Update and
+ * delete run as native PostgreSQL statements with RETURNING, which
+ * Hibernate treats as queries, so the cached user and cached query results
+ * are evicted here after the transaction commits.
+ *
+ * @author Kateryna Mironova
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    /**
+     * Condition which is true if the user has the expected version or no
+     * version is expected.
+     */
+    private static final String VERSION_MATCHES =
+            "(cast(:version as bigint) is null or version = :version)";
+
+    /**
+     * Query which reads the user changed by the statement before it (the
+     * changed_user common table expression) with the user's address.
+     */
+    private static final String SELECT_CHANGED_USER = "select u.id, "
+            + "u.first_name, u.last_name, u.birthday, u.login, u.password, "
+            + "a.id as address_id, a.country, a.city, a.street, "
+            + "a.home_number, u.version, a.version as address_version "
+            + "from changed_user u "
+            + "left join users_schema.addresses a on a.id = u.address_id";
+
+    /**
+     * Statement which updates user and returns the user as stored.
+     */
+    private static final String UPDATE_USER = "with changed_user as ("
+            + "update users_schema.users "
+            + "set version = version + 1, first_name = :firstName, "
+            + "last_name = :lastName, birthday = :birthday, "
+            + "birth_month_day = :birthMonthDay, login = :login, "
+            + "email_domain = :emailDomain, "
+            + "password = coalesce(:password, password), "
+            + "description = coalesce(:description, description), "
+            + "address_id = :addressId "
+            + "where id = :id and " + VERSION_MATCHES + " returning *) "
+            + SELECT_CHANGED_USER;
+
+    /**
+     * Statement which deletes user. The address is shared with other users
+     * who live there, so it is kept.
+     */
+    private static final String DELETE_USER = "with changed_user as ("
+            + "delete from users_schema.users where id = :id and "
+            + VERSION_MATCHES + " returning *) " + SELECT_CHANGED_USER;
+
+    /**
+     * Options of the description fragments returned by the full-text search.
+     */
+    private static final String HEADLINE_OPTIONS = "StartSel=<mark>, "
+            + "StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5, "
+            + "FragmentDelimiter=\" ... \"";
+
+    /**
+     * Query which finds users by their descriptions. The matching users are
+     * ranked and limited first, so the fragments are built only for the
+     * users on the page.
+     */
+    private static final String SEARCH_DESCRIPTION = "select u.id, u.login, "
+            + "u.first_name, u.last_name, h.rank, ts_headline('english', "
+            + "u.description, websearch_to_tsquery('english', :query), "
+            + ":options) as snippet from (select id, rank from ("
+            + "select id, ts_rank_cd(description_tsv, "
+            + "websearch_to_tsquery('english', :query), 1) as rank "
+            + "from users_schema.users where description_tsv @@ "
+            + "websearch_to_tsquery('english', :query)) m "
+            + "where cast(:afterRank as real) is null or rank < :afterRank "
+            + "or (rank = :afterRank and id > :afterId) "
+            + "order by rank desc, id limit :limit) h "
+            + "join users_schema.users u on u.id = h.id "
+            + "order by h.rank desc, h.id";
+
+    /**
+     * Persistence context to run criteria queries.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFields(Collection<String> fields,
+            Specification<User> spec, Sort sort, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections)
+                .where(spec.toPredicate(root, query, builder))
+                .orderBy(toOrders(sort, root, builder));
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList().stream().map(tuple -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            return row;
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<User> updateByIdReturning(Long id, User user,
+            Long version) {
+        Address address = user.getAddress();
+        List<?> result = entityManager.createNativeQuery(UPDATE_USER)
+                .setParameter("id", id)
+                .setParameter("version", number(version))
+                .setParameter("firstName", user.getFirstName())
+                .setParameter("lastName", user.getLastName())
+                .setParameter("birthday", user.getBirthday())
+                .setParameter("birthMonthDay",
+                        User.monthDay(user.getBirthday()))
+                .setParameter("login", user.getLogin())
+                .setParameter("emailDomain",
+                        User.extractEmailDomain(user.getLogin()))
+                .setParameter("password", new TypedParameterValue(
+                        StringType.INSTANCE, user.getPassword()))
+                .setParameter("description", new TypedParameterValue(
+                        StringType.INSTANCE, user.getDescription()))
+                .setParameter("addressId",
+                        number(address == null ? null : address.getId()))
+                .getResultList();
+        return changedUser(id, result);
+    }
+
+    @Override
+    public Optional<User> deleteByIdReturning(Long id, Long version) {
+        List<?> result = entityManager.createNativeQuery(DELETE_USER)
+                .setParameter("id", id)
+                .setParameter("version", number(version))
+                .getResultList();
+        return changedUser(id, result);
+    }
+
+    /**
+     * Reads the user changed by a statement which ends with
+     * {@link UserRepositoryImpl#SELECT_CHANGED_USER} and evicts the user
+     * from the second-level cache after commit.
+     *
+     * @param id     id of the changed user
+     * @param result rows returned by the statement
+     * @return changed user with the address or nothing if no user was
+     *         changed
+     */
+    private Optional<User> changedUser(Long id, List<?> result) {
+        if (result.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = (Object[]) result.get(0);
+        User user = new User();
+        user.setId(((Number) row[0]).longValue());
+        user.setFirstName((String) row[1]);
+        user.setLastName((String) row[2]);
+        user.setBirthday(((Date) row[3]).toLocalDate());
+        user.setLogin((String) row[4]);
+        user.setPassword((String) row[5]);
+        user.setVersion(((Number) row[11]).longValue());
+        if (row[6] != null) {
+            Address address = new Address();
+            address.setId(((Number) row[6]).longValue());
+            address.setCountry((String) row[7]);
+            address.setCity((String) row[8]);
+            address.setStreet((String) row[9]);
+            address.setHomeNumber((String) row[10]);
+            address.setVersion(((Number) row[12]).longValue());
+            user.setAddress(address);
+        }
+        evictAfterCommit(id);
+        return Optional.of(user);
+    }
+
+    @Override
+    public List<DescriptionMatch> searchDescription(String query,
+            Float afterRank, long afterId, int limit) {
+        List<?> result = entityManager.createNativeQuery(SEARCH_DESCRIPTION)
+                .setParameter("query", query)
+                .setParameter("options", HEADLINE_OPTIONS)
+                .setParameter("afterRank",
+                        new TypedParameterValue(FloatType.INSTANCE, afterRank))
+                .setParameter("afterId", afterId)
+                .setParameter("limit", limit)
+                .getResultList();
+        List<DescriptionMatch> matches = new ArrayList<>(result.size());
+        for (Object item : result) {
+            Object[] row = (Object[]) item;
+            matches.add(new DescriptionMatch(((Number) row[0]).longValue(),
+                    (String) row[1], (String) row[2], (String) row[3],
+                    ((Number) row[4]).floatValue(), (String) row[5]));
+        }
+        return matches;
+    }
+
+    /**
+     * Makes typed parameter from the number, so null is bound as bigint.
+     *
+     * @param value number or null
+     * @return typed parameter value
+     */
+    private static TypedParameterValue number(Long value) {
+        return new TypedParameterValue(LongType.INSTANCE, value);
+    }
+
+    /**
+     * Removes the user and cached query results from the second-level cache
+     * when the current transaction commits (or at once if there is no
+     * transaction).
+     *
+     * @param id id of the changed user
+     */
+    private void evictAfterCommit(Long id) {
+        Cache cache = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getCache();
+        Runnable eviction = () -> {
+            cache.evict(User.class, id);
+            cache.evictDefaultQueryRegion();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            eviction.run();
+                        }
+                    });
+        } else {
+            eviction.run();
+        }
+    }
+}
@@ -1,27 +1,96 @@
 package com.wamisoftware.testusersapp.service;
 
+import com.wamisoftware.testusersapp.dto.AddressMergeResult;
+import com.wamisoftware.testusersapp.dto.AddressUserCount;
+import com.wamisoftware.testusersapp.dto.CursorPage;
 import com.wamisoftware.testusersapp.model.Address;
 import com.wamisoftware.testusersapp.repository.AddressRepository;
+import com.wamisoftware.testusersapp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
 
 /**
- * Service class to interact with the address
+ * Service class to interact with the address. Every address is kept only
+ * once: addresses of users are resolved to the canonical row which has the
+ * same normalized key, and ids of the canonical rows are kept in the
+ * addresses cache.
  *
  * @author Kateryna Mironova
  */
 @Service
 public class AddressService {
 
+    /**
+     * Name of the cache with ids of the canonical addresses by normalized
+     * key.
+     */
+    public static final String ADDRESSES_CACHE = "addresses";
+
+    /**
+     * Name of the cache with user counts by country and city.
+     */
+    public static final String ADDRESS_COUNTS_CACHE = "addressCounts";
+
     /**
      * Repository to interact with addresses table in database.
      */
     @Autowired
     private final AddressRepository addressRepository;
 
+    /**
+     * Repository to move users to the canonical addresses.
+     */
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Manager of the cache with ids of the canonical addresses.
+     */
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Template to merge every batch of duplicates in its own transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of addresses checked in one transaction when duplicates are
+     * merged.
+     */
+    @Value("${users.address.merge-batch-size:500}")
+    private int mergeBatchSize = 500;
+
+    /**
+     * Maximum number of addresses returned on one page.
+     */
+    @Value("${users.page.max-size:1000}")
+    private int maxPageSize = 1000;
+
     /**
      * Constructor for repository initialization.
      *
@@ -32,49 +101,356 @@ public class AddressService {
     }
 
     /**
-     * Saves address to database.
+     * Saves address to database unless the same address is already there.
      *
      * @param address address to insert to database
-     * @return the saved address
+     * @return the address with id of the canonical row
+     */
+    @Transactional
+    public Address create(Address address) {
+        return intern(address);
+    }
+
+    /**
+     * Resolves address to the canonical row which has the same normalized
+     * key. The row is inserted if there is no such address yet.
+     *
+     * @param address address to resolve
+     * @return the address with id of the canonical row
+     */
+    @Transactional
+    public Address intern(Address address) {
+        internAll(Collections.singletonList(address));
+        return address;
+    }
+
+    /**
+     * Resolves addresses to the canonical rows and sets ids of the rows to
+     * them. Cached ids are used first, the remaining addresses are found by
+     * one query, and only the new ones are inserted one by one. A row which
+     * another transaction inserts at the same time is found after the
+     * insert. Ids are cached after the transaction commits, so a rolled back
+     * insert is never cached.
+     *
+     * @param addresses addresses to resolve (null elements are skipped)
+     */
+    @Transactional
+    public void internAll(Collection<Address> addresses) {
+        Map<String, List<Address>> byKey = new LinkedHashMap<>();
+        for (Address address : addresses) {
+            if (address != null) {
+                byKey.computeIfAbsent(Address.normalize(address),
+                        key -> new ArrayList<>()).add(address);
+            }
+        }
+        Cache cache = cacheManager.getCache(ADDRESSES_CACHE);
+        if (cache != null) {
+            Iterator<Map.Entry<String, List<Address>>> iterator = byKey
+                    .entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, List<Address>> entry = iterator.next();
+                Long id = cache.get(entry.getKey(), Long.class);
+                if (id != null) {
+                    setId(entry.getValue(), id);
+                    iterator.remove();
+                }
+            }
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        Map<String, Long> ids = findIds(byKey.keySet());
+        Map<String, Long> resolved = new HashMap<>();
+        for (Map.Entry<String, List<Address>> entry : byKey.entrySet()) {
+            String key = entry.getKey();
+            Long id = ids.get(key);
+            if (id == null) {
+                id = addressRepository.insertIfAbsent(entry.getValue().get(0))
+                        .orElseGet(() -> findIds(Collections.singleton(key))
+                                .get(key));
+            }
+            if (id == null) {
+                throw new IllegalStateException(
+                        "Address was removed while it was resolved");
+            }
+            setId(entry.getValue(), id);
+            resolved.put(key, id);
+        }
+        if (cache != null) {
+            cacheAfterCommit(cache, resolved);
+        }
+    }
+
+    /**
+     * Finds ids of the canonical addresses.
+     *
+     * @param keys normalized keys of the addresses
+     * @return map from normalized key to id of the found addresses
+     */
+    private Map<String, Long> findIds(Collection<String> keys) {
+        Map<String, Long> ids = new HashMap<>();
+        for (Object[] row : addressRepository.findIdsByNormalizedKeyIn(keys)) {
+            ids.put((String) row[0], (Long) row[1]);
+        }
+        return ids;
+    }
+
+    /**
+     * Sets id of the canonical row to the addresses.
+     *
+     * @param addresses addresses with the same normalized key
+     * @param id        id of the canonical row
+     */
+    private static void setId(List<Address> addresses, Long id) {
+        for (Address address : addresses) {
+            address.setId(id);
+        }
+    }
+
+    /**
+     * Puts ids of the canonical addresses to the cache when the current
+     * transaction commits (or at once if there is no transaction).
+     *
+     * @param cache cache of the canonical addresses
+     * @param ids   map from normalized key to id
+     */
+    private static void cacheAfterCommit(Cache cache, Map<String, Long> ids) {
+        afterCommit(() -> ids.forEach(cache::put));
+    }
+
+    /**
+     * Runs the action when the current transaction commits (or at once if
+     * there is no transaction). The cache is changed only after commit, so
+     * a concurrent transaction cannot see the old rows and put them back to
+     * the cache after the change.
+     *
+     * @param action action which changes the cache
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            action.run();
+                        }
+                    });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Merges duplicate addresses which were written before deduplication.
+     * Addresses without normalized key are checked in batches ordered by
+     * id, every batch in its own transaction. The first address with a key
+     * becomes canonical and gets the key, users of the other ones are moved
+     * to it and the duplicates are removed. A batch fails if a user inserts
+     * the same address at the same time, and the merge can be run again.
+     *
+     * @return number of checked and merged addresses
+     */
+    @CacheEvict(cacheNames = UserService.USERS_CACHE, allEntries = true)
+    public AddressMergeResult mergeDuplicates() {
+        int scanned = 0;
+        int merged = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            long[] batch = transactionTemplate.execute(
+                    status -> mergeBatch(afterId));
+            if (batch == null || batch[0] == 0) {
+                return new AddressMergeResult(scanned, merged);
+            }
+            scanned += (int) batch[0];
+            merged += (int) batch[1];
+            lastId = batch[2];
+        }
+    }
+
+    /**
+     * Merges duplicates among the next batch of addresses without
+     * normalized key.
+     *
+     * @param afterId id of the last address of the previous batch
+     * @return number of checked addresses, number of merged addresses and
+     *         id of the last checked address
+     */
+    private long[] mergeBatch(long afterId) {
+        List<Address> batch = addressRepository
+                .findByNormalizedKeyIsNullAndIdGreaterThanOrderByIdAsc(
+                        afterId, PageRequest.of(0, mergeBatchSize));
+        if (batch.isEmpty()) {
+            return new long[] { 0, 0, 0 };
+        }
+        List<String> keys = new ArrayList<>();
+        for (Address address : batch) {
+            keys.add(Address.normalize(address));
+        }
+        Map<String, Long> canonicalIds = findIds(keys);
+        Map<Long, List<Long>> duplicates = new LinkedHashMap<>();
+        List<Long> duplicateIds = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Address address = batch.get(i);
+            Long canonicalId = canonicalIds.putIfAbsent(keys.get(i),
+                    address.getId());
+            if (canonicalId == null) {
+                address.updateNormalizedKey();
+            } else {
+                duplicates.computeIfAbsent(canonicalId,
+                        id -> new ArrayList<>()).add(address.getId());
+                duplicateIds.add(address.getId());
+            }
+        }
+        duplicates.forEach((canonicalId, ids) -> userRepository
+                .moveToAddress(addressRepository.getOne(canonicalId), ids));
+        if (!duplicateIds.isEmpty()) {
+            addressRepository.deleteByIdIn(duplicateIds);
+        }
+        return new long[] { batch.size(), duplicateIds.size(),
+                batch.get(batch.size() - 1).getId() };
+    }
+
+    /**
+     * Returns one page of addresses ordered by id.
+     *
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of addresses on the page (is capped by
+     *               {@link AddressService#maxPageSize})
+     * @return page of addresses with the token of the next page
+     * @throws IllegalArgumentException if the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Address> findPage(String cursor, int limit) {
+        return findPage(cursor, limit,
+                addressRepository::findByIdGreaterThanOrderByIdAsc);
+    }
+
+    /**
+     * Returns one page of addresses in the specified country.
+     *
+     * @param country name of the country (case is ignored)
+     * @param cursor  opaque token of the page or null for the first page
+     * @param limit   maximum number of addresses on the page (is capped by
+     *                {@link AddressService#maxPageSize})
+     * @return page of found addresses ordered by id with the token of the
+     *         next page
+     * @throws IllegalArgumentException if the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Address> findByCountry(String country, String cursor,
+            int limit) {
+        return findPage(cursor, limit, (afterId, pageable) ->
+                addressRepository.findByCountry(country.trim(), afterId,
+                        pageable));
+    }
+
+    /**
+     * Returns one page of addresses in the specified city.
+     *
+     * @param city   name of the city (case is ignored)
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of addresses on the page (is capped by
+     *               {@link AddressService#maxPageSize})
+     * @return page of found addresses ordered by id with the token of the
+     *         next page
+     * @throws IllegalArgumentException if the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Address> findByCity(String city, String cursor,
+            int limit) {
+        return findPage(cursor, limit, (afterId, pageable) ->
+                addressRepository.findByCity(city.trim(), afterId, pageable));
+    }
+
+    /**
+     * Reads one page of addresses after the cursor.
+     *
+     * @param cursor     opaque token of the page or null for the first page
+     * @param limit      maximum number of addresses on the page
+     * @param pageReader function which finds addresses after the id
+     * @return page of addresses with the token of the next page
      */
-    public void create(Address address) {
-        addressRepository.save(address);
+    private CursorPage<Address> findPage(String cursor, int limit,
+            BiFunction<Long, Pageable, List<Address>> pageReader) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        List<Address> addresses = pageReader.apply(
+                CursorPage.decodeCursor(cursor), PageRequest.of(0, size));
+        return CursorPage.of(addresses, size, Address::getId);
     }
 
     /**
-     * Returns all addresses from database.
+     * Returns address which has specified id.
      *
-     * @return list of addresses from database
+     * @param addressId id of the address
+     * @return address which has specified id or nothing if there is no
+     *         address with this id
      */
-    public List<Address> findAll() {
-        return addressRepository.findAll();
+    @Transactional(readOnly = true)
+    public Optional<Address> findById(Long addressId) {
+        return addressRepository.findById(addressId);
     }
 
     /**
-     * Returns address who has specified id.
+     * Counts users in every country. The counts are computed by database
+     * and kept in the address counts cache for a short time.
      *
-     * @return address who has specified id or null if there is no user
-     *         with this id.
+     * @return list of user counts from the largest one
      */
-    public Address findById(Long addressId) {
-        return addressRepository.findById(addressId).orElse(null);
+    @Cacheable(cacheNames = ADDRESS_COUNTS_CACHE, key = "'countries'")
+    @Transactional(readOnly = true)
+    public List<AddressUserCount> countUsersByCountry() {
+        return addressRepository.countUsersByCountry();
     }
 
     /**
-     * Finds all addresses in Ukraine.
+     * Counts users in every city. The counts are computed by database and
+     * kept in the address counts cache for a short time.
      *
-     * @return list of addresses in Ukraine
+     * @param country name of the country to count users only in its cities
+     *                (case is ignored) or null to count in all cities
+     * @return list of user counts from the largest one
      */
-    public List<Address> findWhereCountryIsUkraine() {
-        return addressRepository.findWhereCountryIsUkraine();
+    @Cacheable(cacheNames = ADDRESS_COUNTS_CACHE, key = "'cities:' + "
+            + "(#country == null ? '' : #country.trim().toLowerCase())")
+    @Transactional(readOnly = true)
+    public List<AddressUserCount> countUsersByCity(String country) {
+        return country == null ? addressRepository.countUsersByCity()
+                : addressRepository.countUsersByCityInCountry(country.trim());
     }
 
     /**
-     * Removes address from database.
+     * Removes address which has specified id from database unless somebody
+     * lives there, checked in the same statement. Its cached id is evicted
+     * after the removal commits.
      *
-     * @param address address to remove from database
+     * @param addressId id of the address to remove
+     * @return the removed address or nothing if there is no address with
+     *         this id
+     * @throws DataIntegrityViolationException if somebody lives at the
+     *                                         address
      */
-    public void delete(Address address) {
-        addressRepository.delete(address);
+    @Transactional
+    public Optional<Address> deleteById(Long addressId) {
+        Optional<Address> address = addressRepository.findById(addressId);
+        if (!address.isPresent()) {
+            return address;
+        }
+        if (addressRepository.deleteUnusedById(addressId) == 0) {
+            if (userRepository.existsByAddressId(addressId)) {
+                throw new DataIntegrityViolationException(
+                        "Address " + addressId + " is used by users");
+            }
+            return Optional.empty();
+        }
+        Cache cache = cacheManager.getCache(ADDRESSES_CACHE);
+        if (cache != null) {
+            String key = Address.normalize(address.get());
+            afterCommit(() -> cache.evict(key));
+        }
+        return address;
     }
 }
@@ -0,0 +1,36 @@
+package com.wamisoftware.testusersapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Stand-in sender which only prints the addresses. It can simulate the
+ * latency of a real mail service to load-test the messaging pipeline.
+ *
+ * @author Kateryna Mironova
+ */
+@Service
+public class LoggingMessageSender implements MessageSender {
+
+    /**
+     * Simulated time of sending one batch of messages in milliseconds.
+     */
+    @Value("${users.messaging.sender-delay-ms:0}")
+    private long delayMillis;
+
+    @Override
+    public void send(List<String> emails) {
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Sending was interrupted", e);
+            }
+        }
+        emails.forEach(email -> System.out
+                .println("Sending message to email " + email));
+    }
+}
@@ -0,0 +1,19 @@
+package com.wamisoftware.testusersapp.service;
+
+import java.util.List;
+
+/**
+ * Sender of messages to users. Declare another bean of this type as
+ * {@code @Primary} to replace the default one.
+ *
+ * @author Kateryna Mironova
+ */
+public interface MessageSender {
+
+    /**
+     * "Sends message" to every specified email address.
+     *
+     * @param emails valid email addresses
+     */
+    void send(List<String> emails);
+}
@@ -0,0 +1,238 @@
+package com.wamisoftware.testusersapp.service;
+
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.dto.MessagingJob;
+import com.wamisoftware.testusersapp.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class to send messages to users in background jobs. A producer
+ * reads the recipients page by page and puts them to a bounded queue, and
+ * workers take them from the queue and send them in batches. The producer
+ * waits while the queue is full, so it is never far ahead of the workers.
+ * Every running job has its own producer and workers, and no more than
+ * {@code users.messaging.max-jobs} jobs run at once. Finished jobs are
+ * forgotten after {@code users.messaging.finished-job-ttl-ms}.
+ *
+ * @author Kateryna Mironova
+ */
+@Service
+public class MessagingService {
+
+    /**
+     * Service to read the recipients.
+     */
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Sender of the messages.
+     */
+    @Autowired
+    private MessageSender messageSender;
+
+    /**
+     * Number of recipients read from database at once.
+     */
+    @Value("${users.messaging.page-size:500}")
+    private int pageSize;
+
+    /**
+     * Maximum number of recipients waiting to be sent in one job.
+     */
+    @Value("${users.messaging.queue-capacity:1000}")
+    private int queueCapacity;
+
+    /**
+     * Maximum number of messages sent at once.
+     */
+    @Value("${users.messaging.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * Number of workers sending messages in one job.
+     */
+    @Value("${users.messaging.workers:4}")
+    private int workers;
+
+    /**
+     * Maximum number of jobs running at once.
+     */
+    @Value("${users.messaging.max-jobs:2}")
+    private int maxJobs;
+
+    /**
+     * Time after which a finished job is forgotten, in milliseconds.
+     */
+    @Value("${users.messaging.finished-job-ttl-ms:3600000}")
+    private long finishedJobTtlMillis;
+
+    /**
+     * Free places for running jobs.
+     */
+    private Semaphore freeJobs;
+
+    /**
+     * Jobs by their identifiers.
+     */
+    private final Map<String, MessagingJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Threads of the producers and workers.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Creates threads for the producers and the workers of all jobs which
+     * may run at once, so a started job never waits for threads.
+     */
+    @PostConstruct
+    public void init() {
+        freeJobs = new Semaphore(maxJobs);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxJobs * (workers + 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "messaging-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Stops all running jobs.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts sending messages to users whose login has specified domain.
+     *
+     * @param emailDomain domain of the logins of the recipients
+     * @return the started job
+     * @throws RejectedExecutionException if the maximum number of jobs is
+     *                                    already running
+     */
+    public MessagingJob start(String emailDomain) {
+        removeExpiredJobs();
+        if (!freeJobs.tryAcquire()) {
+            throw new RejectedExecutionException(
+                    "Too many messaging jobs are running");
+        }
+        MessagingJob job = new MessagingJob(UUID.randomUUID().toString(),
+                emailDomain.trim().toLowerCase());
+        jobs.put(job.getId(), job);
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(queueCapacity);
+        executor.execute(() -> produce(job, queue));
+        AtomicInteger runningWorkers = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> {
+                consume(job, queue);
+                if (runningWorkers.decrementAndGet() == 0) {
+                    job.finish();
+                    freeJobs.release();
+                }
+            });
+        }
+        return job;
+    }
+
+    /**
+     * Returns job which has specified id.
+     *
+     * @param jobId id of the job
+     * @return job with specified id or nothing if there is no such job
+     */
+    public Optional<MessagingJob> findJob(String jobId) {
+        removeExpiredJobs();
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Forgets the jobs which finished longer than
+     * {@link MessagingService#finishedJobTtlMillis} ago.
+     */
+    private void removeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - finishedJobTtlMillis;
+        jobs.values().removeIf(job -> job.getFinishedAt() != null
+                && job.getFinishedAt().getTime() < expiredBefore);
+    }
+
+    /**
+     * Reads the recipients page by page and puts them to the queue.
+     *
+     * @param job   job to send messages in
+     * @param queue queue of the recipients
+     */
+    private void produce(MessagingJob job, BlockingQueue<String> queue) {
+        try {
+            String cursor = null;
+            do {
+                CursorPage<User> page = userService.findByEmailDomain(
+                        job.getEmailDomain(), cursor, pageSize);
+                for (User user : page.getItems()) {
+                    queue.put(user.getLogin());
+                }
+                job.addQueued(page.getItems().size());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            job.markAllQueued();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.markFailed("Interrupted");
+        } catch (RuntimeException e) {
+            job.markFailed(e.getMessage());
+        }
+    }
+
+    /**
+     * Takes the recipients from the queue and sends them in batches until
+     * all recipients are read and sent.
+     *
+     * @param job   job to send messages in
+     * @param queue queue of the recipients
+     */
+    private void consume(MessagingJob job, BlockingQueue<String> queue) {
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            while (!job.isAllQueued() || !queue.isEmpty()) {
+                String email = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (email == null) {
+                    continue;
+                }
+                batch.add(email);
+                queue.drainTo(batch, batchSize - 1);
+                try {
+                    messageSender.send(batch);
+                    job.addSent(batch.size());
+                } catch (RuntimeException e) {
+                    job.addFailed(batch.size());
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.wamisoftware.testusersapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service class to hash and verify passwords of users with PBKDF2. The
+ * work is CPU-bound and slow on purpose, so it runs on its own bounded pool
+ * which is as large as the number of processors. No thread holding a
+ * database connection waits for it, and no database work runs on it: the
+ * callers hand the work back to their own threads when the hash is ready.
+ * Hashes which do not fit into the pool and its queue are rejected.
+ *
+ * @author Kateryna Mironova
+ */
+@Service
+public class PasswordService {
+
+    /**
+     * Algorithm of the key derivation.
+     */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /**
+     * Stored password hash: "$pbkdf2-sha256$cost$salt$hash", where the
+     * number of iterations is 2 to the power of cost and the salt and the
+     * hash are in Base64 without padding.
+     */
+    private static final Pattern HASH = Pattern.compile(
+            "\\$pbkdf2-sha256\\$(\\d{1,2})\\$([A-Za-z0-9+/]{22})\\$"
+                    + "([A-Za-z0-9+/]{43})");
+
+    /**
+     * Number of random bytes of the salt.
+     */
+    private static final int SALT_BYTES = 16;
+
+    /**
+     * Number of bits of the hash.
+     */
+    private static final int HASH_BITS = 256;
+
+    /**
+     * Lowest allowed cost factor.
+     */
+    private static final int MIN_COST = 4;
+
+    /**
+     * Highest allowed cost factor.
+     */
+    private static final int MAX_COST = 30;
+
+    /**
+     * Source of the salts.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Registry where the hashing metrics are published.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Cost factor of the new hashes: the number of iterations is 2 to the
+     * power of it, so every increment doubles the time of hashing. Hashes
+     * made with another cost are still verified with their own cost.
+     */
+    @Value("${users.password.cost:16}")
+    private int cost;
+
+    /**
+     * Number of threads of the pool (the number of processors if it is
+     * not positive).
+     */
+    @Value("${users.password.threads:0}")
+    private int threads;
+
+    /**
+     * Maximum number of passwords waiting for a thread of the pool.
+     */
+    @Value("${users.password.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * Pool of threads which hash passwords.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Number of passwords which were not hashed because the pool and its
+     * queue were full.
+     */
+    private Counter rejected;
+
+    /**
+     * Time of hashing a new password.
+     */
+    private Timer hashTimer;
+
+    /**
+     * Time of verifying a password.
+     */
+    private Timer verifyTimer;
+
+    /**
+     * Hash which passwords of unknown users are verified against, so the
+     * answer takes as long as for the known users.
+     */
+    private String unknownUserHash;
+
+    /**
+     * Creates the pool and registers its metrics.
+     *
+     * @throws IllegalStateException if the cost factor is out of range
+     */
+    @PostConstruct
+    public void init() {
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalStateException("users.password.cost must be "
+                    + "from " + MIN_COST + " to " + MAX_COST);
+        }
+        int poolSize = threads > 0 ? threads
+                : Runtime.getRuntime().availableProcessors();
+        rejected = Counter.builder("users.password.rejected")
+                .description("Passwords not hashed because the pool was full")
+                .register(meterRegistry);
+        hashTimer = Timer.builder("users.password")
+                .tag("operation", "hash").register(meterRegistry);
+        verifyTimer = Timer.builder("users.password")
+                .tag("operation", "verify").register(meterRegistry);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "password-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException(
+                            "Too many passwords waiting to be hashed");
+                });
+        new ExecutorServiceMetrics(executor, "password",
+                Tags.empty()).bindTo(meterRegistry);
+        unknownUserHash = hashNow(Long.toHexString(random.nextLong()));
+    }
+
+    /**
+     * Stops the pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hashes the password on the pool.
+     *
+     * @param password password to hash
+     * @return future hash of the password
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<String> hash(String password) {
+        return CompletableFuture.supplyAsync(() -> hashNow(password),
+                executor);
+    }
+
+    /**
+     * Hashes the password on the pool unless it is missing. A password sent
+     * by a client is always hashed, even if it looks like a hash, so nobody
+     * can store a hash of his own choice.
+     *
+     * @param password password to hash or null
+     * @return future hash of the password or null if there is no password
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<String> hashIfPresent(String password) {
+        if (password == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return hash(password);
+    }
+
+    /**
+     * Hashes the passwords of many users at once. The passwords are hashed
+     * on the pool while there is room in its queue and on the calling
+     * thread otherwise, so a large import is slowed down instead of
+     * rejected and does not take the whole queue from the requests.
+     *
+     * @param passwords passwords to hash, missing ones stay null
+     * @return hashes of the passwords in the same order
+     */
+    public List<String> hashAll(List<String> passwords) {
+        List<CompletableFuture<String>> hashes =
+                new ArrayList<>(passwords.size());
+        for (String password : passwords) {
+            if (password == null) {
+                hashes.add(CompletableFuture.completedFuture(password));
+            } else if (executor.getQueue().remainingCapacity()
+                    > queueCapacity / 2) {
+                try {
+                    hashes.add(hash(password));
+                } catch (RejectedExecutionException e) {
+                    hashes.add(CompletableFuture.completedFuture(
+                            hashNow(password)));
+                }
+            } else {
+                hashes.add(CompletableFuture.completedFuture(
+                        hashNow(password)));
+            }
+        }
+        List<String> result = new ArrayList<>(hashes.size());
+        for (CompletableFuture<String> hash : hashes) {
+            result.add(hash.join());
+        }
+        return result;
+    }
+
+    /**
+     * Hashes the password on the calling thread.
+     *
+     * @param password password to hash
+     * @return hash of the password with its cost factor and salt
+     */
+    public String hashNow(String password) {
+        long start = System.nanoTime();
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        String hash = "$pbkdf2-sha256$" + cost + "$"
+                + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, cost));
+        hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return hash;
+    }
+
+    /**
+     * Checks the password against the stored hash on the pool. A stored
+     * value which is not a hash never matches.
+     *
+     * @param password password to check
+     * @param stored   stored hash of the password or null if there is no
+     *                 such user (the password is then checked against a
+     *                 dummy hash, so the answer takes as long as usual)
+     * @return future true if the password matches
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<Boolean> verify(String password, String stored) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                if (stored == null) {
+                    matches(password, unknownUserHash);
+                    return false;
+                }
+                return matches(password, stored);
+            } finally {
+                verifyTimer.record(System.nanoTime() - start,
+                        TimeUnit.NANOSECONDS);
+            }
+        }, executor);
+    }
+
+    /**
+     * Checks whether the value is a password hash made by this service. It
+     * must not be used to decide whether a password sent by a client needs
+     * hashing.
+     *
+     * @param value password or its hash
+     * @return true if the value is a hash
+     */
+    public boolean isHash(String value) {
+        return HASH.matcher(value).matches();
+    }
+
+    /**
+     * Checks the password against the stored value.
+     *
+     * @param password password to check
+     * @param stored   stored hash of the password
+     * @return true if the password matches, false if it does not or the
+     *         stored value is not a hash
+     */
+    private static boolean matches(String password, String stored) {
+        Matcher matcher = HASH.matcher(stored);
+        if (!matcher.matches()) {
+            return false;
+        }
+        int storedCost = Integer.parseInt(matcher.group(1));
+        if (storedCost < MIN_COST || storedCost > MAX_COST) {
+            return false;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(matcher.group(3));
+        byte[] actual = derive(password, decoder.decode(matcher.group(2)),
+                storedCost);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * Derives the hash of the password.
+     *
+     * @param password password to hash
+     * @param salt     random salt
+     * @param cost     cost factor (2 to the power of it is the number of
+     *                 iterations)
+     * @return hash bytes
+     */
+    private static byte[] derive(String password, byte[] salt, int cost) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt,
+                1 << cost, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM)
+                    .generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot hash password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
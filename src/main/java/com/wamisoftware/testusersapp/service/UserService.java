@@ -1,14 +1,45 @@
 package com.wamisoftware.testusersapp.service;
 
+import com.wamisoftware.testusersapp.dto.BatchImportResult;
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.model.Address;
 import com.wamisoftware.testusersapp.model.User;
 import com.wamisoftware.testusersapp.repository.UserRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Date;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -19,12 +50,85 @@ import java.util.stream.Stream;
 @Service
 public class UserService {
 
+    /**
+     * Name of the cache with users found by id.
+     */
+    public static final String USERS_CACHE = "users";
+
+    /**
+     * Attributes of user which can be requested as separate fields. The
+     * password is never returned.
+     */
+    public static final Set<String> SELECTABLE_FIELDS = Collections
+            .unmodifiableSet(new LinkedHashSet<>(Arrays.asList("id",
+                    "firstName", "lastName", "birthday", "login",
+                    "description")));
+
+    /**
+     * Lower bound of the birthday range when the maximum age is not set.
+     */
+    private static final LocalDate EARLIEST_BIRTHDAY = LocalDate.of(1, 1, 1);
+
+    /**
+     * Maximum age which can be searched for. Older ages make birthdays
+     * which are out of the supported range of dates.
+     */
+    private static final int MAX_AGE = 150;
+
+    /**
+     * Maximum number of days ahead to look for upcoming birthdays. It is
+     * less than a year, so the same birthday cannot be found twice.
+     */
+    private static final int MAX_UPCOMING_DAYS = 365;
+
     /**
      * Repository to interact with users table in database.
      */
     @Autowired
     private final UserRepository userRepository;
 
+    /**
+     * Service to resolve addresses of users to the canonical rows.
+     */
+    @Autowired
+    private AddressService addressService;
+
+    /**
+     * Service to hash passwords of the saved users.
+     */
+    @Autowired
+    private PasswordService passwordService;
+
+    /**
+     * Persistence context used to detach exported users.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Validator of imported users.
+     */
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Template to run every imported chunk in its own transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of imported users written in one transaction.
+     */
+    @Value("${users.import.chunk-size:1000}")
+    private int importChunkSize = 1000;
+
+    /**
+     * Maximum number of users returned on one page.
+     */
+    @Value("${users.page.max-size:1000}")
+    private int maxPageSize = 1000;
+
     /**
      * Constructor for repository initialization.
      *
@@ -35,32 +139,414 @@ public class UserService {
     }
 
     /**
-     * Saves user to database.
+     * Saves user to database. The address of the user is resolved to the
+     * canonical row first. A plain password is hashed on the calling thread,
+     * so callers which must not wait for it hash it beforehand with
+     * {@link PasswordService#hash(String)}.
      *
      * @param user user to insert to database
      * @return the saved user
      */
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#user.id",
+            condition = "#user.id != null")
+    @Transactional
     public User save(User user) {
+        hashPassword(user);
+        if (user.getAddress() != null) {
+            addressService.intern(user.getAddress());
+        }
         return userRepository.save(user);
     }
 
     /**
-     * Returns all users from database.
+     * Saves new users to database in chunks. Every chunk is written in its
+     * own transaction with JDBC batching, so one round trip carries many
+     * rows. Invalid users are skipped, and if a chunk is rejected by
+     * database its users are retried one by one to find the failed ones.
+     * Imported users are always inserted as new rows, and their passwords
+     * are hashed and their addresses are resolved to the canonical rows
+     * before the chunk is written.
+     *
+     * @param users users to insert to database
+     * @return number of saved users and the list of rejected ones
+     */
+    public BatchImportResult saveAllInBatches(Iterator<User> users) {
+        BatchImportResult result = new BatchImportResult();
+        List<User> chunk = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+        for (int index = 0; ; index++) {
+            User user;
+            try {
+                if (!users.hasNext()) {
+                    break;
+                }
+                user = users.next();
+            } catch (RuntimeException e) {
+                result.addFailure(index, "Malformed record: " + e.getMessage());
+                break;
+            }
+            Set<ConstraintViolation<User>> violations = validator
+                    .validate(user);
+            if (!violations.isEmpty()) {
+                result.addFailure(index, violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            chunk.add(user);
+            chunkIndexes.add(index);
+            if (chunk.size() == importChunkSize) {
+                saveChunk(chunk, chunkIndexes, result);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, chunkIndexes, result);
+        }
+        return result;
+    }
+
+    /**
+     * Saves one chunk of imported users in a single transaction or user by
+     * user if the chunk is rejected.
+     *
+     * @param chunk        users to insert to database
+     * @param chunkIndexes positions of the users in the imported sequence
+     * @param result       result to register saved and rejected users
+     */
+    private void saveChunk(List<User> chunk, List<Integer> chunkIndexes,
+            BatchImportResult result) {
+        chunk.forEach(UserService::resetIds);
+        List<String> passwords = passwordService.hashAll(chunk.stream()
+                .map(User::getPassword).collect(Collectors.toList()));
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).setPassword(passwords.get(i));
+        }
+        addressService.internAll(chunk.stream().map(User::getAddress)
+                .collect(Collectors.toList()));
+        try {
+            transactionTemplate.execute(status -> {
+                userRepository.saveAll(chunk);
+                userRepository.flush();
+                entityManager.clear();
+                return null;
+            });
+            result.addImported(chunk.size());
+        } catch (DataAccessException | TransactionException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                User user = chunk.get(i);
+                resetIds(user);
+                try {
+                    transactionTemplate.execute(
+                            status -> userRepository.save(user));
+                    result.addImported(1);
+                } catch (DataAccessException | TransactionException ex) {
+                    result.addFailure(chunkIndexes.get(i),
+                            ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces plain password of the user with its hash. The hashing runs
+     * on the calling thread. Passwords which the callers have hashed with
+     * {@link PasswordService#hash(String)} beforehand are kept, and the
+     * callers always hash passwords sent by clients themselves.
+     *
+     * @param user user to save
+     */
+    private void hashPassword(User user) {
+        String password = user.getPassword();
+        if (password != null && !passwordService.isHash(password)) {
+            user.setPassword(passwordService.hashNow(password));
+        }
+    }
+
+    /**
+     * Clears identifier of the user so he is inserted as a new row.
+     *
+     * @param user user to insert to database
+     */
+    private static void resetIds(User user) {
+        user.setId(null);
+    }
+
+    /**
+     * Passes all users from database to the consumer one by one. Users are
+     * read page by page, every page in its own short read-only
+     * transaction, so the database never has to materialize the whole
+     * table in one result set and no connection is held while the consumer
+     * (e.g. a slow client) takes the users. The entities are detached, so
+     * memory use does not depend on the number of users.
+     *
+     * @param consumer function which receives every user
+     */
+    public void findAll(Consumer<? super User> consumer) {
+        readAllPages(cursor -> findPage(cursor, maxPageSize), consumer);
+    }
+
+    /**
+     * Passes specified fields of all users from database to the consumer
+     * one by one, page by page, every page in its own read-only
+     * transaction.
+     *
+     * @param fields   names of the fields to return
+     * @param consumer function which receives map from field name to its
+     *                 value for every user
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    public void findAllFields(Set<String> fields,
+            Consumer<? super Map<String, Object>> consumer) {
+        readAllPages(cursor -> findPageFields(cursor, maxPageSize, fields),
+                consumer);
+    }
+
+    /**
+     * Reads all pages one after another and passes their items to the
+     * consumer. Every page is read in its own read-only transaction and its
+     * entities are detached before they are consumed.
+     *
+     * @param pageReader function which reads the page by its cursor
+     * @param consumer   function which receives every item
+     * @param <T>        type of the page items
+     */
+    private <T> void readAllPages(Function<String, CursorPage<T>> pageReader,
+            Consumer<? super T> consumer) {
+        TransactionTemplate readOnly = new TransactionTemplate(
+                transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            CursorPage<T> page = readOnly.execute(status -> {
+                CursorPage<T> read = pageReader.apply(pageCursor);
+                entityManager.clear();
+                return read;
+            });
+            page.getItems().forEach(consumer);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+    }
+
+    /**
+     * Returns one page of users ordered by id.
+     *
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of users with the token of the next page
+     * @throws IllegalArgumentException if the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findPage(String cursor, int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorPage.decodeCursor(cursor), PageRequest.of(0, size));
+        return CursorPage.of(users, size, User::getId);
+    }
+
+    /**
+     * Returns one page of users whose first name or last name starts with
+     * the specified text, ignoring case. The text is lower-cased the same
+     * way in every default locale, so it matches the index of the
+     * lower-cased names.
+     *
+     * @param text   beginning of the name or surname
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of found users ordered by id with the token of the next
+     *         page
+     * @throws IllegalArgumentException if the text is blank, the cursor is
+     *                                  malformed or the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> searchByName(String text, String cursor,
+            int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        if (text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Query must not be blank");
+        }
+        String prefix = text.toLowerCase(Locale.ROOT).replace("!", "!!")
+                .replace("%", "!%").replace("_", "!_");
+        List<User> users = userRepository.searchByNamePrefix(prefix,
+                CursorPage.decodeCursor(cursor), PageRequest.of(0, size));
+        return CursorPage.of(users, size, User::getId);
+    }
+
+    /**
+     * Returns one page of users whose description matches the full-text
+     * search query, from the most relevant one. Only the matching fragments
+     * of the descriptions are read, not the whole descriptions.
+     *
+     * @param query  search query in web search syntax (words, "quoted
+     *               phrases", or, -excluded words)
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of found users with their relevance and the matching
+     *         fragments of the descriptions, with the token of the next page
+     * @throws IllegalArgumentException if the query is blank, the cursor is
+     *                                  malformed or the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<DescriptionMatch> searchDescription(String query,
+            String cursor, int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        if (query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Query must not be blank");
+        }
+        Float afterRank = null;
+        long afterId = 0L;
+        if (cursor != null) {
+            long[] keys = CursorPage.decodeCursorKeys(cursor, 2);
+            afterRank = Float.intBitsToFloat((int) keys[0]);
+            afterId = keys[1];
+        }
+        List<DescriptionMatch> matches = userRepository.searchDescription(
+                query, afterRank, afterId, size);
+        return CursorPage.ofKeys(matches, size, match -> new long[] {
+                Float.floatToIntBits(match.getRank()), match.getId() });
+    }
+
+    /**
+     * Returns one page of users whose login has specified domain.
+     *
+     * @param emailDomain domain of the login (case is ignored)
+     * @param cursor      opaque token of the page or null for the first page
+     * @param limit       maximum number of users on the page (is capped by
+     *                    {@link UserService#maxPageSize})
+     * @return page of found users ordered by id with the token of the next
+     *         page
+     * @throws IllegalArgumentException if the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findByEmailDomain(String emailDomain,
+            String cursor, int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        List<User> users = userRepository
+                .findByEmailDomainAndIdGreaterThanOrderByIdAsc(
+                        emailDomain.trim().toLowerCase(),
+                        CursorPage.decodeCursor(cursor),
+                        PageRequest.of(0, size));
+        return CursorPage.of(users, size, User::getId);
+    }
+
+    /**
+     * Returns specified fields of one page of users ordered by id. The id is
+     * always returned because the next cursor is built from it.
+     *
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @param fields names of the fields to return
+     * @return page of maps from field name to its value, one per user
+     * @throws IllegalArgumentException if the cursor is malformed, the limit
+     *                                  is not positive or some field cannot
+     *                                  be returned
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> findPageFields(String cursor,
+            int limit, Set<String> fields) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        selected.addAll(checkFields(fields));
+        long afterId = CursorPage.decodeCursor(cursor);
+        List<Map<String, Object>> users = userRepository.findFields(selected,
+                (root, query, builder) -> builder
+                        .greaterThan(root.get("id"), afterId),
+                Sort.by("id"), size);
+        return CursorPage.of(users, size, user -> (Long) user.get("id"));
+    }
+
+    /**
+     * Returns specified fields of users which satisfy the condition.
      *
-     * @return list of users from database
+     * @param fields names of the fields to return
+     * @param spec   condition of the users to find
+     * @return list of maps from field name to its value, one per user
+     * @throws IllegalArgumentException if some field cannot be returned
      */
-    public List<User> findAll() {
-        return userRepository.findAll();
+    private List<Map<String, Object>> findFields(Set<String> fields,
+            Specification<User> spec) {
+        return userRepository.findFields(checkFields(fields), spec,
+                Sort.by("id"), 0);
+    }
+
+    /**
+     * Checks that every requested field can be returned.
+     *
+     * @param fields names of the requested fields
+     * @return the same names of fields
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    public static Set<String> checkFields(Set<String> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        return fields;
     }
 
     /**
-     * Returns user who has specified id.
+     * Passes all users from database to the consumer one by one. Every user
+     * and the user's address are detached after the user was consumed (the
+     * address is not detached with the user, because addresses are shared),
+     * so memory use does not depend on the number of exported users.
+     *
+     * @param consumer function which receives every user
+     */
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<? super User> consumer) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+                if (user.getAddress() != null) {
+                    entityManager.detach(user.getAddress());
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns user who has specified id. Found users are cached together
+     * with their addresses until they are saved or removed. The user is
+     * read from the primary database (the transaction is not read-only, so
+     * it is not routed to a replica), because a stale row read from a
+     * lagging replica would be served from the cache long after the
+     * replica has caught up.
      *
      * @return user who has specified id or null if there is no user
      *         with this id.
      */
+    @Cacheable(cacheNames = USERS_CACHE, unless = "#result == null")
+    @Transactional
     public Optional<User> findById(Long userId) {
-        return userRepository.findById(userId);
+        Optional<User> user = userRepository.findById(userId);
+        user.ifPresent(found -> Hibernate.initialize(found.getAddress()));
+        return user;
+    }
+
+    /**
+     * Returns description of the user who has specified id.
+     *
+     * @param userId id of the user
+     * @return description of the user (empty string if the user has no
+     *         description) or nothing if there is no user with this id
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findDescriptionById(Long userId) {
+        return userRepository.findDescriptionById(userId);
     }
 
     /**
@@ -70,55 +556,378 @@ public class UserService {
      * @param lastName  string with user surname
      * @return list of users with specified name and surname
      */
+    @Transactional(readOnly = true)
     public List<User> findByFirstNameAndLastName(String firstName,
             String lastName) {
         return userRepository.findByFirstNameAndLastName(firstName, lastName);
     }
 
+    /**
+     * Finds specified fields of all users that have specified first name and
+     * last name.
+     *
+     * @param fields    names of the fields to return
+     * @param firstName string with user name
+     * @param lastName  string with user surname
+     * @return list of maps from field name to its value, one per user
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsByFirstNameAndLastName(
+            Set<String> fields, String firstName, String lastName) {
+        return findFields(fields, (root, query, builder) -> builder.and(
+                builder.equal(root.get("firstName"), firstName),
+                builder.equal(root.get("lastName"), lastName)));
+    }
+
     /**
      * Finds all users who specified their address in the system.
      *
      * @return list of users with addresses
      */
+    @Transactional(readOnly = true)
     public List<User> findByAddressNotNull() {
         return userRepository.findByAddressNotNull();
     }
 
+    /**
+     * Finds specified fields of all users who specified their address in
+     * the system.
+     *
+     * @param fields names of the fields to return
+     * @return list of maps from field name to its value, one per user
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsByAddressNotNull(
+            Set<String> fields) {
+        return findFields(fields, (root, query, builder) -> builder
+                .isNotNull(root.get("address")));
+    }
+
     /**
      * Finds all users whose whose birthday is earlier than the specified date.
      * @param date date to compare with
      *
      * @return list of users birthday is earlier than the specified date
      */
-    public List<User> findByBirthdayLessThan(Date date) {
+    @Transactional(readOnly = true)
+    public List<User> findByBirthdayLessThan(LocalDate date) {
         return userRepository.findByBirthdayLessThan(date);
     }
 
     /**
-     * Removes user from database.
+     * Finds specified fields of all users whose birthday is earlier than the
+     * specified date.
+     *
+     * @param fields names of the fields to return
+     * @param date   date to compare with
+     * @return list of maps from field name to its value, one per user
+     * @throws IllegalArgumentException if some field cannot be returned
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFieldsByBirthdayLessThan(
+            Set<String> fields, LocalDate date) {
+        return findFields(fields, (root, query, builder) -> builder
+                .lessThan(root.get("birthday"), date));
+    }
+
+    /**
+     * Returns one page of users whose birthday is in the specified range.
+     *
+     * @param from   beginning of the range (inclusive)
+     * @param to     end of the range (inclusive)
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of found users ordered by birthday and id with the token
+     *         of the next page
+     * @throws IllegalArgumentException if the range is empty, the cursor is
+     *                                  malformed or the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findByBirthdayBetween(LocalDate from,
+            LocalDate to, String cursor, int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException(
+                    "Beginning of the range is after its end");
+        }
+        LocalDate afterBirthday = from;
+        long afterId = 0L;
+        if (cursor != null) {
+            long[] keys = CursorPage.decodeCursorKeys(cursor, 2);
+            afterBirthday = LocalDate.ofEpochDay(keys[0]);
+            afterId = keys[1];
+        }
+        List<User> users = userRepository.findByBirthdayBetween(afterBirthday,
+                afterId, to, PageRequest.of(0, size));
+        return CursorPage.ofKeys(users, size, user -> new long[] {
+                user.getBirthday().toEpochDay(), user.getId() });
+    }
+
+    /**
+     * Returns one page of users whose age in full years is in the specified
+     * range. The ages are converted to the range of birthdays, so the same
+     * index is used as for {@link UserService#findByBirthdayBetween}.
+     *
+     * @param minAge minimum age (inclusive) or null if there is no minimum
+     * @param maxAge maximum age (inclusive) or null if there is no maximum
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of found users ordered by birthday and id with the token
+     *         of the next page
+     * @throws IllegalArgumentException if some age is not from 0 to
+     *                                  {@link UserService#MAX_AGE}, the range
+     *                                  is empty, the cursor is malformed or
+     *                                  the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findByAge(Integer minAge, Integer maxAge,
+            String cursor, int limit) {
+        if ((minAge != null && (minAge < 0 || minAge > MAX_AGE))
+                || (maxAge != null && (maxAge < 0 || maxAge > MAX_AGE))) {
+            throw new IllegalArgumentException("Age must be from 0 to "
+                    + MAX_AGE);
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = maxAge == null ? EARLIEST_BIRTHDAY
+                : today.minusYears(maxAge + 1L).plusDays(1);
+        LocalDate to = minAge == null ? today : today.minusYears(minAge);
+        return findByBirthdayBetween(from, to, cursor, limit);
+    }
+
+    /**
+     * Returns one page of users whose birthday is celebrated within the
+     * specified number of days starting from today. When the period crosses
+     * the end of the year it is split into two ranges of month and day of
+     * birth which are read one after another, so the users are ordered by
+     * the date of the nearest birthday. Users born on February 29 celebrate
+     * on February 28 in the years which are not leap.
+     *
+     * @param days   number of days including today (from 1 to 365)
+     * @param cursor opaque token of the page or null for the first page
+     * @param limit  maximum number of users on the page (is capped by
+     *               {@link UserService#maxPageSize})
+     * @return page of found users ordered by the nearest birthday and id
+     *         with the token of the next page
+     * @throws IllegalArgumentException if the number of days is out of range,
+     *                                  the cursor is malformed or the limit is
+     *                                  not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> findUpcomingBirthdays(int days, String cursor,
+            int limit) {
+        int size = CursorPage.pageSize(limit, maxPageSize);
+        if (days <= 0 || days > MAX_UPCOMING_DAYS) {
+            throw new IllegalArgumentException("Days must be from 1 to "
+                    + MAX_UPCOMING_DAYS);
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate last = today.plusDays(days - 1L);
+        int[][] ranges = last.getYear() == today.getYear()
+                ? new int[][]{{User.monthDay(today), lastMonthDay(last)}}
+                : new int[][]{{User.monthDay(today), User.monthDay(
+                        LocalDate.of(today.getYear(), 12, 31))},
+                        {0, lastMonthDay(last)}};
+        int range = 0;
+        int afterMonthDay = ranges[0][0];
+        long afterId = 0L;
+        if (cursor != null) {
+            long[] keys = CursorPage.decodeCursorKeys(cursor, 3);
+            if (keys[0] < 0 || keys[0] >= ranges.length) {
+                throw new IllegalArgumentException("Malformed cursor: "
+                        + cursor);
+            }
+            range = (int) keys[0];
+            afterMonthDay = (int) keys[1];
+            afterId = keys[2];
+        }
+        List<User> users = new ArrayList<>(size);
+        while (true) {
+            users.addAll(userRepository.findByBirthMonthDayBetween(
+                    afterMonthDay, afterId, ranges[range][1],
+                    PageRequest.of(0, size - users.size())));
+            if (users.size() == size || range == ranges.length - 1) {
+                break;
+            }
+            range++;
+            afterMonthDay = ranges[range][0];
+            afterId = 0L;
+        }
+        long lastRange = range;
+        return CursorPage.ofKeys(users, size, user -> new long[] {
+                lastRange, user.getBirthMonthDay(), user.getId() });
+    }
+
+    /**
+     * Makes number from month and day of the last day of the upcoming
+     * birthdays. February 28 of the year which is not leap also covers
+     * February 29, because users born on that day celebrate on February 28.
+     *
+     * @param last last day of the upcoming birthdays
+     * @return month * 100 + day of the last birthday to find
+     */
+    private static int lastMonthDay(LocalDate last) {
+        int monthDay = User.monthDay(last);
+        if (last.getMonth() == Month.FEBRUARY && last.getDayOfMonth() == 28
+                && !last.isLeapYear()) {
+            monthDay++;
+        }
+        return monthDay;
+    }
+
+    /**
+     * Replaces user who has specified id in one statement. Description of
+     * the user is kept if the new one is null. The address of the user is
+     * resolved to the canonical row first, which costs no statement if the
+     * address is cached. A plain password is hashed on the calling thread.
+     *
+     * @param userId  id of the user to update
+     * @param user    new values of the user
+     * @param version expected version of the user or null to update any
+     *                version
+     * @return the updated user as stored or nothing if there is no user
+     *         with this id
+     * @throws OptimisticLockingFailureException if the user has another
+     *                                           version
+     */
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#userId")
+    @Transactional
+    public Optional<User> update(Long userId, User user, Long version) {
+        hashPassword(user);
+        if (user.getAddress() != null) {
+            addressService.intern(user.getAddress());
+        }
+        Optional<User> updated = userRepository.updateByIdReturning(userId,
+                user, version);
+        if (!updated.isPresent()) {
+            checkVersionMismatch(userId, version);
+        }
+        return updated;
+    }
+
+    /**
+     * Changes some attributes of the user who has specified id. Only the
+     * changed columns are written to database. A new address is resolved to
+     * the canonical row, and a new plain password is hashed on the calling
+     * thread.
      *
-     * @param user user to remove from database
+     * @param userId  id of the user to change
+     * @param version expected version of the user or null to change any
+     *                version
+     * @param changes function which changes attributes of the user
+     * @return the changed user or nothing if there is no user with this id
+     * @throws IllegalArgumentException          if the changed user is not
+     *                                           valid
+     * @throws OptimisticLockingFailureException if the user has another
+     *                                           version
      */
-    public void delete(User user) {
-        userRepository.delete(user);
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#userId")
+    @Transactional
+    public Optional<User> patch(Long userId, Long version,
+            Consumer<User> changes) {
+        User user = entityManager.find(User.class, userId);
+        if (user == null) {
+            return Optional.empty();
+        }
+        if (version != null && user.getVersion() != version) {
+            throw versionMismatch(userId);
+        }
+        changes.accept(user);
+        Set<ConstraintViolation<User>> violations = validator.validate(user,
+                User.Stored.class);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .collect(Collectors.joining("; ")));
+        }
+        hashPassword(user);
+        Address address = user.getAddress();
+        if (address != null && !entityManager.contains(address)) {
+            addressService.intern(address);
+        }
+        Hibernate.initialize(address);
+        return Optional.of(user);
     }
 
     /**
-     * "Sends message" to specified email address (example of logic method).
+     * Removes user who has specified id in one statement. The address of
+     * the user is kept, because other users may share it; the statement
+     * only reads it to return it with the removed user.
      *
-     * @param email valid email address
+     * @param userId  id of the user to remove
+     * @param version expected version of the user or null to remove any
+     *                version
+     * @return the removed user or nothing if there is no user with this id
+     * @throws OptimisticLockingFailureException if the user has another
+     *                                           version
      */
-    private void sendMessage(String email) {
-        System.out.println("Sending message to email " + email);
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#userId")
+    @Transactional
+    public Optional<User> deleteById(Long userId, Long version) {
+        Optional<User> user = userRepository.deleteByIdReturning(userId,
+                version);
+        if (!user.isPresent()) {
+            checkVersionMismatch(userId, version);
+        }
+        return user;
     }
 
     /**
-     * "Sends message" to users whose email is Gmail.
+     * Returns stored password hash of the user who has specified login
+     * without loading the user.
+     *
+     * @param login login of the user
+     * @return password hash of the user or nothing if there is no user with
+     *         this login
      */
     @Transactional(readOnly = true)
-    public void sendMessageToGmailUsers() {
-        try (Stream<User> gmailUsers = userRepository.findWhereLoginIsGmail()) {
-            gmailUsers.forEach(user -> sendMessage(user.getLogin()));
+    public Optional<String> findPasswordByLogin(String login) {
+        return userRepository.findPasswordByLogin(login);
+    }
+
+    /**
+     * Returns version of the user who has specified id without loading the
+     * user. It is read from the primary database like
+     * {@link UserService#findById(Long)}, so the entity tag which is checked
+     * and the cached user which is returned agree.
+     *
+     * @param userId id of the user
+     * @return version of the user or nothing if there is no user with this
+     *         id
+     */
+    @Transactional
+    public Optional<Long> findVersionById(Long userId) {
+        return userRepository.findVersionById(userId);
+    }
+
+    /**
+     * Checks why the user who was expected to have specified version was
+     * not changed.
+     *
+     * @param userId  id of the user
+     * @param version expected version of the user or null
+     * @throws OptimisticLockingFailureException if the user exists, so it
+     *                                           has another version
+     */
+    private void checkVersionMismatch(Long userId, Long version) {
+        if (version != null
+                && userRepository.findVersionById(userId).isPresent()) {
+            throw versionMismatch(userId);
         }
     }
+
+    /**
+     * Creates exception about the user who has not the expected version.
+     *
+     * @param userId id of the user
+     * @return exception to throw
+     */
+    private static OptimisticLockingFailureException versionMismatch(
+            Long userId) {
+        return new OptimisticLockingFailureException(
+                "User " + userId + " has another version");
+    }
 }
@@ -1,14 +1,41 @@
-INSERT INTO users_schema.addresses (id, country, city, street, home_number)
-    VALUES (1, 'Ukraine', 'Kiev', 'Main Street', '4');
-INSERT INTO users_schema.addresses (id, country, city, street, home_number)
-    VALUES (2, 'Ukraine', 'Lviv', 'Some Street', '15');
-
-INSERT INTO users_schema.users (id, first_name, last_name, birthday, login,
-    password, description, address_id) VALUES (1, 'First', 'User', '08-Jan-1998',
-    'first@gmail.com', '12345', 'First User Description', 1);
-INSERT INTO users_schema.users (id, first_name, last_name, birthday, login,
-    password, description, address_id) VALUES (2, 'Second', 'User', '31-July-1999',
-    'second@gmail.com', '54321', 'Second User Description', 2);
+INSERT INTO users_schema.addresses (id, version, country, city, street,
+    home_number) VALUES (1, 0, 'Ukraine', 'Kiev', 'Main Street', '4');
+INSERT INTO users_schema.addresses (id, version, country, city, street,
+    home_number) VALUES (2, 0, 'Ukraine', 'Lviv', 'Some Street', '15');
+
+-- Passwords are PasswordService hashes of 12345 and 54321
+INSERT INTO users_schema.users (id, version, first_name, last_name, birthday,
+    birth_month_day, login, email_domain, password, description, address_id)
+    VALUES (1, 0, 'First', 'User', '08-Jan-1998', 108, 'first@gmail.com',
+    'gmail.com',
+    '$pbkdf2-sha256$16$5s7oKvGRnYyFsxlf4d4vQQ$aVSt6fmuxIu6Fe5/BoIWnMRoI23jC2StBU3a1AFIVHo',
+    'First User Description', 1);
+INSERT INTO users_schema.users (id, version, first_name, last_name, birthday,
+    birth_month_day, login, email_domain, password, description, address_id)
+    VALUES (2, 0, 'Second', 'User', '31-July-1999', 731, 'second@gmail.com',
+    'gmail.com',
+    '$pbkdf2-sha256$16$iUr57omvU4WZI+TWaNvy9Q$fP53QTme7uI/R9WYDOlBPT3mHnMWCG0ElNepqe+uO+Y',
+    'Second User Description', 2);
 
 ALTER SEQUENCE users_schema.users_id_seq RESTART WITH 3;
-ALTER SEQUENCE users_schema.addresses_id_seq RESTART WITH 3;
\ No newline at end of file
+ALTER SEQUENCE users_schema.addresses_id_seq RESTART WITH 3;
+
+-- Case-insensitive name prefix search (UserRepository.searchByNamePrefix)
+CREATE INDEX IF NOT EXISTS users_lower_first_name_idx
+    ON users_schema.users (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS users_lower_last_name_idx
+    ON users_schema.users (lower(last_name) text_pattern_ops);
+
+-- Case-insensitive address lookups and aggregates (AddressRepository)
+CREATE INDEX IF NOT EXISTS addresses_lower_country_idx
+    ON users_schema.addresses (lower(country), id);
+CREATE INDEX IF NOT EXISTS addresses_lower_city_idx
+    ON users_schema.addresses (lower(city), id);
+
+-- Full-text search of descriptions (UserRepository.searchDescription),
+-- the vector is kept up to date by the database on insert and update
+ALTER TABLE users_schema.users ADD COLUMN IF NOT EXISTS description_tsv
+    tsvector GENERATED ALWAYS AS
+    (to_tsvector('english', coalesce(description, ''))) STORED;
+CREATE INDEX IF NOT EXISTS users_description_tsv_idx
+    ON users_schema.users USING gin (description_tsv);
@@ -0,0 +1,160 @@
+package com.wamisoftware.testusersapp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for testing ReplicaRoutingDataSource.
+ *
+ * @author Kateryna Mironova
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    /**
+     * Stand-in for the primary database.
+     */
+    private final DataSource primary = new SimpleDriverDataSource();
+
+    /**
+     * Starts transaction synchronization as the transaction manager does.
+     */
+    @Before
+    public void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    /**
+     * Clears transaction synchronization.
+     */
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+        ClientWrites.bind(null);
+    }
+
+    /**
+     * Tests that read-only transactions go to the replicas in turn.
+     */
+    @Test
+    public void testReadOnlyGoesToReplicas() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+                primary, Arrays.asList(new SimpleDriverDataSource(),
+                new SimpleDriverDataSource()), 1000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    /**
+     * Tests that writes go to the primary and reads of the same client stay
+     * there for a while after the write commits, while reads of other
+     * clients still go to the replicas.
+     *
+     * @throws SQLException never, the connection is a stub
+     */
+    @Test
+    public void testReadAfterWriteGoesToPrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+                primaryWithConnection(), Collections.singletonList(
+                new SimpleDriverDataSource()), 60000);
+        dataSource.afterPropertiesSet();
+        AtomicLong cookie = new AtomicLong();
+        ClientWrites writer = new ClientWrites(0, cookie::set);
+        ClientWrites.bind(writer);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY,
+                dataSource.determineCurrentLookupKey());
+        dataSource.getConnection().prepareStatement(
+                "update users_schema.users set first_name = ? where id = ?");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        assertTrue(cookie.get() > 0);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY,
+                dataSource.determineCurrentLookupKey());
+        ClientWrites.bind(new ClientWrites(0, millis -> { }));
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    /**
+     * Tests that a writable transaction which only read data does not keep
+     * the client on the primary.
+     *
+     * @throws SQLException never, the connection is a stub
+     */
+    @Test
+    public void testReadOnlyStatementsAreNotWrites() throws SQLException {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+                primaryWithConnection(), Collections.singletonList(
+                new SimpleDriverDataSource()), 60000);
+        dataSource.afterPropertiesSet();
+        ClientWrites.bind(new ClientWrites(0, millis -> { }));
+        dataSource.getConnection().prepareStatement(
+                "/* find user */ select * from users_schema.users");
+        assertTrue(TransactionSynchronizationManager.getSynchronizations()
+                .isEmpty());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    /**
+     * Tests which statements count as writes.
+     */
+    @Test
+    public void testMayWrite() {
+        assertFalse(ReplicaRoutingDataSource.mayWrite(" SELECT 1"));
+        assertTrue(ReplicaRoutingDataSource.mayWrite(
+                "insert into t values (1)"));
+        assertTrue(ReplicaRoutingDataSource.mayWrite(
+                "with d as (delete from t returning *) select * from d"));
+    }
+
+    /**
+     * Creates stand-in for the primary database which returns a stub
+     * connection.
+     *
+     * @return primary database
+     */
+    private static DataSource primaryWithConnection() {
+        Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> null);
+        return new SimpleDriverDataSource() {
+            @Override
+            protected Connection getConnectionFromDriver(String username,
+                    String password) {
+                return connection;
+            }
+        };
+    }
+
+    /**
+     * Tests that reads go to the primary when there are no replicas.
+     */
+    @Test
+    public void testReadOnlyWithoutReplicasGoesToPrimary() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+                primary, Collections.emptyList(), 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY,
+                dataSource.determineCurrentLookupKey());
+    }
+}
@@ -0,0 +1,205 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wamisoftware.testusersapp.Application;
+import com.wamisoftware.testusersapp.dto.AddressUserCount;
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.model.Address;
+import com.wamisoftware.testusersapp.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for testing AddressController.
+ *
+ * @author Kateryna Mironova
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AddressControllerTest {
+
+    /**
+     * Type of the page of addresses in responses.
+     */
+    private static final ParameterizedTypeReference<CursorPage<Address>> PAGE =
+            new ParameterizedTypeReference<CursorPage<Address>>() {
+            };
+
+    /**
+     * Type of the list of user counts in responses.
+     */
+    private static final ParameterizedTypeReference<AddressUserCount[]> COUNTS =
+            new ParameterizedTypeReference<AddressUserCount[]>() {
+            };
+
+    /**
+     * Synchronous client to perform HTTP request.
+     */
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    /**
+     * Mapper to write users to request bodies.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Http port of application that is injected at runtime
+     */
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Root URL to application
+     *
+     * @return string with root URL on local host
+     */
+    private String getRootUrl() {
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * Tests reading addresses page by page.
+     */
+    @Test
+    public void testGetAddressesPage() {
+        ResponseEntity<CursorPage<Address>> response = restTemplate.exchange(
+                getRootUrl() + "/addresses/page?limit=1", HttpMethod.GET,
+                null, PAGE);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getItems().size());
+        assertNotNull(response.getBody().getNextCursor());
+    }
+
+    /**
+     * Tests finding addresses by country and by city ignoring case.
+     */
+    @Test
+    public void testFindByCountryAndCity() {
+        createUser("poland@gmail.com", "Poland", "Krakow", "Florianska");
+
+        CursorPage<Address> page = restTemplate.exchange(
+                getRootUrl() + "/addresses/country?country=POLAND",
+                HttpMethod.GET, null, PAGE).getBody();
+        assertEquals(1, page.getItems().size());
+        assertEquals("Krakow", page.getItems().get(0).getCity());
+
+        page = restTemplate.exchange(
+                getRootUrl() + "/addresses/city?city=krakow",
+                HttpMethod.GET, null, PAGE).getBody();
+        assertEquals(1, page.getItems().size());
+        assertEquals("Poland", page.getItems().get(0).getCountry());
+    }
+
+    /**
+     * Tests counting users in the cities of the country.
+     */
+    @Test
+    public void testCountUsersByCity() {
+        createUser("oslofirst@gmail.com", "Norway", "Oslo", "Storgata");
+        createUser("oslosecond@gmail.com", "Norway", "oslo", "Karl Johans");
+        createUser("bergen@gmail.com", "NORWAY", "Bergen", "Bryggen");
+
+        AddressUserCount[] counts = restTemplate.exchange(
+                getRootUrl() + "/addresses/counts/cities?country=norway",
+                HttpMethod.GET, null, COUNTS).getBody();
+        assertEquals(2, counts.length);
+        assertEquals("Oslo", counts[0].getCity());
+        assertEquals(2, counts[0].getUsers());
+        assertEquals("Bergen", counts[1].getCity());
+        assertEquals(1, counts[1].getUsers());
+    }
+
+    /**
+     * Tests counting users in every country.
+     */
+    @Test
+    public void testCountUsersByCountry() {
+        createUser("finland@gmail.com", "Finland", "Helsinki", "Mannerheimintie");
+
+        AddressUserCount[] counts = restTemplate.exchange(
+                getRootUrl() + "/addresses/counts/countries",
+                HttpMethod.GET, null, COUNTS).getBody();
+        boolean found = false;
+        for (AddressUserCount count : counts) {
+            if (count.getCountry().equalsIgnoreCase("Ukraine")) {
+                assertTrue(count.getUsers() > 0);
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
+
+    /**
+     * Tests that only the address where nobody lives can be removed.
+     */
+    @Test
+    public void testDeleteAddress() {
+        User user = createUser("spain@gmail.com", "Spain", "Madrid",
+                "Gran Via");
+        String addressUrl = getRootUrl() + "/addresses/"
+                + user.getAddress().getId();
+        ResponseEntity<String> response = restTemplate.exchange(addressUrl,
+                HttpMethod.DELETE, null, String.class);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+
+        restTemplate.delete(getRootUrl() + "/users/" + user.getId());
+        response = restTemplate.exchange(addressUrl, HttpMethod.DELETE, null,
+                String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate
+                .getForEntity(addressUrl, String.class).getStatusCode());
+    }
+
+    /**
+     * Creates user who lives at the specified address.
+     *
+     * @param login   login of the user
+     * @param country country of the address
+     * @param city    city of the address
+     * @param street  street of the address
+     * @return the created user
+     */
+    private User createUser(String login, String country, String city,
+            String street) {
+        User user = new User();
+        user.setFirstName("Address");
+        user.setLastName("User");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1970, 1, 1));
+        Address address = new Address();
+        address.setCountry(country);
+        address.setCity(city);
+        address.setStreet(street);
+        address.setHomeNumber("1");
+        user.setAddress(address);
+        // The password is never written with the user, so it is added to
+        // the body separately
+        ObjectNode body = objectMapper.<ObjectNode>valueToTree(user)
+                .put("password", "hellox users");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.postForObject(getRootUrl() + "/users",
+                new HttpEntity<>(body.toString(), headers), User.class);
+    }
+}
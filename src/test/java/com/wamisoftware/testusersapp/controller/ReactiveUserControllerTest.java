@@ -0,0 +1,93 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.wamisoftware.testusersapp.Application;
+import com.wamisoftware.testusersapp.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for testing ReactiveUserController.
+ *
+ * @author Kateryna Mironova
+ */
+@RunWith(SpringRunner.class)
+@ActiveProfiles("r2dbc")
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactiveUserControllerTest {
+
+    /**
+     * Synchronous client to perform HTTP request.
+     */
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    /**
+     * Http port of application that is injected at runtime
+     */
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Root URL to reactive user endpoints
+     *
+     * @return string with root URL on local host
+     */
+    private String getRootUrl() {
+        return "http://localhost:" + port + "/reactive/users";
+    }
+
+    /**
+     * Tests streaming all users from the database.
+     */
+    @Test
+    public void testGetAllUsers() {
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(getRootUrl() + "/all", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"login\""));
+    }
+
+    /**
+     * Tests finding existent user by id.
+     */
+    @Test
+    public void testFindUserById() {
+        User user = restTemplate.getForObject(getRootUrl() + "/1", User.class);
+        assertNotNull(user);
+        assertEquals(Long.valueOf(1), user.getId());
+        assertNotNull(user.getAddress());
+    }
+
+    /**
+     * Tests finding non-existent user by id.
+     */
+    @Test
+    public void testFindNonExistentUserById() {
+        ResponseEntity<User> response = restTemplate
+                .getForEntity(getRootUrl() + "/10000", User.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    /**
+     * Tests finding users whose birthday is earlier than specified date.
+     */
+    @Test
+    public void testFindByBirthdayLessThan() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/olderThan?date=2000-03-20", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+    }
+}
@@ -0,0 +1,108 @@
+package com.wamisoftware.testusersapp.controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test class for testing RequestExecutor.
+ *
+ * @author Kateryna Mironova
+ */
+public class RequestExecutorTest {
+
+    /**
+     * Stand-in for the password pool which completes the input of the work.
+     */
+    private ExecutorService passwordPool;
+
+    /**
+     * Starts the stand-in password pool.
+     */
+    @Before
+    public void setUp() {
+        passwordPool = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "password-1"));
+    }
+
+    /**
+     * Stops the stand-in password pool.
+     */
+    @After
+    public void tearDown() {
+        passwordPool.shutdown();
+    }
+
+    /**
+     * Tests that the servlet thread does not wait for the password hash and
+     * the work is handed to the request pool even when the pool is
+     * disabled for the other work.
+     */
+    @Test
+    public void testSubmitAfterDoesNotBlockCallingThread() {
+        RequestExecutor requestExecutor = new RequestExecutor();
+        ReflectionTestUtils.setField(requestExecutor, "poolSize", 1);
+        ReflectionTestUtils.setField(requestExecutor, "queueCapacity", 1);
+        requestExecutor.init();
+        try {
+            CountDownLatch hashed = new CountDownLatch(1);
+            CompletableFuture<String> thread = requestExecutor.submitAfter(
+                    hashLater(hashed), hash -> Thread.currentThread().getName());
+            assertFalse(thread.isDone());
+            hashed.countDown();
+            assertEquals("request-1", thread.join());
+        } finally {
+            requestExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the work is handed to the request pool when the password
+     * is hashed.
+     */
+    @Test
+    public void testSubmitAfterRunsOnRequestPool() {
+        RequestExecutor requestExecutor = new RequestExecutor();
+        ReflectionTestUtils.setField(requestExecutor, "enabled", true);
+        ReflectionTestUtils.setField(requestExecutor, "poolSize", 1);
+        ReflectionTestUtils.setField(requestExecutor, "queueCapacity", 1);
+        requestExecutor.init();
+        try {
+            CountDownLatch hashed = new CountDownLatch(1);
+            CompletableFuture<String> thread = requestExecutor.submitAfter(
+                    hashLater(hashed), hash -> Thread.currentThread().getName());
+            hashed.countDown();
+            String name = thread.join();
+            assertFalse(name.startsWith("password-"));
+            assertEquals("request-1", name);
+        } finally {
+            requestExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Completes a "hash" on the stand-in password pool.
+     *
+     * @param start latch which the pool waits for before completing
+     * @return future hash
+     */
+    private CompletableFuture<String> hashLater(CountDownLatch start) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash";
+        }, passwordPool);
+    }
+}
@@ -0,0 +1,140 @@
+package com.wamisoftware.testusersapp.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wamisoftware.testusersapp.Application;
+import com.wamisoftware.testusersapp.dto.CacheStatistics;
+import com.wamisoftware.testusersapp.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test class for testing UserController with a replica which lags behind
+ * the primary database. The replica is the template database, which has
+ * no tables at all, so every read routed to it fails. The client does not
+ * keep cookies, so its reads are not kept on the primary after its own
+ * writes.
+ *
+ * @author Kateryna Mironova
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "users.datasource.replica-urls="
+                + "jdbc:postgresql://localhost:5432/template1")
+public class UserControllerReplicaTest {
+
+    /**
+     * Synchronous client to perform HTTP request.
+     */
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    /**
+     * Mapper to write users to request bodies.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Http port of application that is injected at runtime
+     */
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Root URL to application
+     *
+     * @return string with root URL on local host
+     */
+    private String getRootUrl() {
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * Tests that the user found by id is read from the primary database,
+     * so the cache never keeps what a lagging replica returned.
+     */
+    @Test
+    public void testFindUserByIdAfterWriteIsNotStale() {
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, restTemplate
+                .getForEntity(getRootUrl() + "/users/page", String.class)
+                .getStatusCode());
+
+        User user = new User();
+        user.setFirstName("Replica");
+        user.setLastName("User");
+        user.setLogin("replica@gmail.com");
+        user.setBirthday(LocalDate.of(1980, 5, 6));
+        ResponseEntity<User> created = restTemplate.postForEntity(
+                getRootUrl() + "/users", userEntity(user), User.class);
+        assertEquals(HttpStatus.OK, created.getStatusCode());
+        String url = getRootUrl() + "/users/" + created.getBody().getId();
+
+        user.setFirstName("Changed");
+        assertEquals(HttpStatus.OK, restTemplate.exchange(url,
+                HttpMethod.PUT, userEntity(user), User.class)
+                .getStatusCode());
+
+        ResponseEntity<User> read = restTemplate.getForEntity(url,
+                User.class);
+        assertEquals(HttpStatus.OK, read.getStatusCode());
+        assertEquals("Changed", read.getBody().getFirstName());
+        String eTag = read.getHeaders().getETag();
+
+        long hits = cacheHits();
+        ResponseEntity<User> cached = restTemplate.getForEntity(url,
+                User.class);
+        assertEquals(HttpStatus.OK, cached.getStatusCode());
+        assertEquals("Changed", cached.getBody().getFirstName());
+        assertEquals(eTag, cached.getHeaders().getETag());
+        assertNotEquals(hits, cacheHits());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(url,
+                HttpMethod.GET, new HttpEntity<>(headers), User.class)
+                .getStatusCode());
+    }
+
+    /**
+     * Returns number of the hits of the cache of users found by id.
+     *
+     * @return number of the hits
+     */
+    private long cacheHits() {
+        return restTemplate.getForObject(getRootUrl() + "/caches/users",
+                CacheStatistics.class).getHitCount();
+    }
+
+    /**
+     * Creates request with the user and the user's password, which is never
+     * written with the user otherwise.
+     *
+     * @param user user to send
+     * @return request with the user as JSON
+     */
+    private HttpEntity<String> userEntity(User user) {
+        ObjectNode body = objectMapper.<ObjectNode>valueToTree(user)
+                .put("password", "hellox users");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body.toString(), headers);
+    }
+}
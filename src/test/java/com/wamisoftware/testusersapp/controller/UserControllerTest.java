@@ -1,28 +1,52 @@
 package com.wamisoftware.testusersapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.wamisoftware.testusersapp.Application;
+import com.wamisoftware.testusersapp.dto.AddressMergeResult;
+import com.wamisoftware.testusersapp.dto.BatchImportResult;
+import com.wamisoftware.testusersapp.dto.CacheStatistics;
+import com.wamisoftware.testusersapp.dto.Credentials;
+import com.wamisoftware.testusersapp.dto.CursorPage;
+import com.wamisoftware.testusersapp.dto.DescriptionMatch;
+import com.wamisoftware.testusersapp.dto.MessagingJob;
+import com.wamisoftware.testusersapp.dto.PoolStatistics;
+import com.wamisoftware.testusersapp.dto.RegionStatistics;
 import com.wamisoftware.testusersapp.model.Address;
 import com.wamisoftware.testusersapp.model.User;
+import org.junit.Assume;
 import org.junit.Test;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.client.HttpClientErrorException;
 
-import java.util.Date;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test class for testing UserController.
@@ -33,12 +57,45 @@ import static org.junit.Assert.assertNull;
 @SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class UserControllerTest {
 
+    /**
+     * Type of the page of users in responses.
+     */
+    private static final ParameterizedTypeReference<CursorPage<User>> PAGE =
+            new ParameterizedTypeReference<CursorPage<User>>() {
+            };
+
+    /**
+     * Type of the page of description search results in responses.
+     */
+    private static final ParameterizedTypeReference<
+            CursorPage<DescriptionMatch>> MATCHES =
+            new ParameterizedTypeReference<CursorPage<DescriptionMatch>>() {
+            };
+
     /**
      * Synchronous client to perform HTTP request.
      */
     @Autowired
     private TestRestTemplate restTemplate;
 
+    /**
+     * Mapper to write users to request bodies.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Factory of the persistence contexts to read Hibernate statistics.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Template to change rows bypassing the application.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     /**
      * Http port of application that is injected at runtime
      */
@@ -62,9 +119,79 @@ public class UserControllerTest {
         HttpHeaders headers = new HttpHeaders();
         HttpEntity<String> entity = new HttpEntity<String>(null, headers);
         ResponseEntity<String> response = restTemplate
-                .exchange(getRootUrl() + "/all", HttpMethod.GET, entity,
+                .exchange(getRootUrl() + "/users/all", HttpMethod.GET, entity,
                         String.class);
         assertNotNull(response.getBody());
+        assertTrue(response.getBody().startsWith("["));
+        assertTrue(response.getBody().contains("\"login\""));
+    }
+
+    /**
+     * Tests reading only the requested fields of all users.
+     */
+    @Test
+    public void testGetAllUsersFields() {
+        ResponseEntity<Map[]> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/all?fields=login", Map[].class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().length > 0);
+        assertEquals(new HashSet<>(Arrays.asList("id", "login")),
+                response.getBody()[0].keySet());
+    }
+
+    /**
+     * Tests reading the first page of users with keyset pagination.
+     */
+    @Test
+    public void testGetUsersPage() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/page?limit=1", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+    }
+
+    /**
+     * Tests reading page of users with malformed cursor.
+     */
+    @Test
+    public void testGetUsersPageWithMalformedCursor() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/page?cursor=abc", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests reading only the requested fields of users.
+     */
+    @Test
+    public void testGetUsersPageFields() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/page?fields=firstName,login",
+                String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"login\""));
+        assertFalse(response.getBody().contains("\"description\""));
+    }
+
+    /**
+     * Tests that the password cannot be requested as a field.
+     */
+    @Test
+    public void testGetUsersPasswordField() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/all?fields=password", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests exporting all users as newline-delimited JSON.
+     */
+    @Test
+    public void testExportUsers() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/export", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
     }
 
     /**
@@ -72,9 +199,59 @@ public class UserControllerTest {
      */
     @Test
     public void testFindUserById() {
-        User user = restTemplate.getForObject(getRootUrl() + "/1", User.class);
-        System.out.println(user.getFirstName());
-        assertNotNull(user);
+        ResponseEntity<User> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/1", User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Long.valueOf(1), response.getBody().getId());
+    }
+
+    /**
+     * Tests that repeated finding of user by id is served from cache.
+     */
+    @Test
+    public void testFindUserByIdIsCached() {
+        restTemplate.getForObject(getRootUrl() + "/users/1", User.class);
+        restTemplate.getForObject(getRootUrl() + "/users/1", User.class);
+        CacheStatistics statistics = restTemplate.getForObject(
+                getRootUrl() + "/caches/users", CacheStatistics.class);
+        assertNotNull(statistics);
+        assertTrue(statistics.getHitCount() > 0);
+    }
+
+    /**
+     * Tests that addresses are kept in the second-level cache.
+     */
+    @Test
+    public void testAddressRegionStatistics() {
+        restTemplate.getForObject(getRootUrl() + "/users/1", User.class);
+        RegionStatistics statistics = restTemplate.getForObject(
+                getRootUrl() + "/caches/regions/address",
+                RegionStatistics.class);
+        assertNotNull(statistics);
+        assertEquals("address", statistics.getName());
+    }
+
+    /**
+     * Tests finding description of existent user separately from the user.
+     */
+    @Test
+    public void testFindUserDescription() {
+        User user = restTemplate.getForObject(getRootUrl() + "/users/1",
+                User.class);
+        assertNull(user.getDescription());
+        String description = restTemplate.getForObject(
+                getRootUrl() + "/users/1/description", String.class);
+        assertEquals("First User Description", description);
+    }
+
+    /**
+     * Tests finding description of non-existent user.
+     */
+    @Test
+    public void testFindNonExistentUserDescription() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/10000/description", String.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     /**
@@ -83,9 +260,9 @@ public class UserControllerTest {
     @Test
     public void testFindNonExistentUserById() {
         long id = 10_000;
-        User user = restTemplate.getForObject(getRootUrl() + "/" + id,
-                User.class);
-        assertNull(user.getId());
+        ResponseEntity<User> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/" + id, User.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     /**
@@ -94,10 +271,63 @@ public class UserControllerTest {
     @Test
     public void testCreateUser() {
         User user = prepareUser();
-        ResponseEntity<User> postResponse = restTemplate
-                .postForEntity(getRootUrl(), user, User.class);
-        assertNotNull(postResponse);
-        assertNotNull(postResponse.getBody());
+        ResponseEntity<User> postResponse = restTemplate.postForEntity(
+                getRootUrl() + "/users", userEntity(user), User.class);
+        assertEquals(HttpStatus.OK, postResponse.getStatusCode());
+        assertNotNull(postResponse.getBody().getId());
+        assertEquals(user.getLogin(), postResponse.getBody().getLogin());
+    }
+
+    /**
+     * Tests creating many users at once with one invalid user among them.
+     */
+    @Test
+    public void testCreateUsersInBatch() {
+        User first = prepareUser();
+        first.setLogin("batchfirst@gmail.com");
+        User second = prepareUser();
+        second.setLogin("batchsecond@gmail.com");
+        User invalid = prepareUser();
+        invalid.setLogin("not an email");
+        ResponseEntity<BatchImportResult> postResponse = restTemplate
+                .postForEntity(getRootUrl() + "/users/batch",
+                        usersEntity(first, invalid, second),
+                        BatchImportResult.class);
+        assertEquals(HttpStatus.OK, postResponse.getStatusCode());
+        assertEquals(2, postResponse.getBody().getImported());
+        assertEquals(1, postResponse.getBody().getFailures().size());
+        assertEquals(1, postResponse.getBody().getFailures().get(0).getIndex());
+    }
+
+    /**
+     * Creates user who has specified login and birthday.
+     *
+     * @param login    login of the user
+     * @param birthday birthday of the user
+     * @return the created user
+     */
+    private User createUser(String login, LocalDate birthday) {
+        User user = prepareUser();
+        user.setLogin(login);
+        user.setBirthday(birthday);
+        return restTemplate.postForObject(getRootUrl() + "/users",
+                userEntity(user), User.class);
+    }
+
+    /**
+     * Changes description of the user. The description is never sent with
+     * the user, so it is changed separately.
+     *
+     * @param user        user to change
+     * @param description new description of the user
+     */
+    private void describeUser(User user, String description) {
+        ObjectNode body = new ObjectMapper().createObjectNode()
+                .put("description", description);
+        ResponseEntity<User> response = restTemplate.exchange(getRootUrl()
+                        + "/users/" + user.getId(), HttpMethod.PATCH,
+                jsonEntity(body.toString()), User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
     /**
@@ -111,7 +341,7 @@ public class UserControllerTest {
         user.setLastName("User");
         user.setLogin("newuser@gmail.com");
         user.setPassword("hellox users");
-        user.setBirthday(new Date());
+        user.setBirthday(LocalDate.of(1990, 5, 17));
         user.setDescription("New test user");
         Address address = new Address();
         address.setCountry("Ukraine");
@@ -127,15 +357,15 @@ public class UserControllerTest {
      */
     @Test
     public void testUpdateUser() {
-        int id = 1;
-        User user = restTemplate
-                .getForObject(getRootUrl() + "/" + id, User.class);
+        User user = createUser("updated@gmail.com", LocalDate.of(1990, 1, 2));
+        String url = getRootUrl() + "/users/" + user.getId();
         String updatedFirstName = "UpdatedUser";
         user.setFirstName(updatedFirstName);
-        restTemplate.put(getRootUrl() + "/" + id, user);
-        User updatedUser = restTemplate
-                .getForObject(getRootUrl() + "/" + id, User.class);
-        assertNotNull(updatedUser);
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.PUT, userEntity(user), User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        User updatedUser = restTemplate.getForObject(url, User.class);
+        assertEquals(updatedFirstName, updatedUser.getFirstName());
     }
 
     /**
@@ -146,11 +376,10 @@ public class UserControllerTest {
         long id = 10_000;
         User user = prepareUser();
         user.setId(id);
-        try {
-            restTemplate.put(getRootUrl() + "/" + id, user);
-        } catch (final HttpClientErrorException e) {
-            assertEquals(e.getStatusCode(), HttpStatus.NOT_FOUND);
-        }
+        ResponseEntity<User> response = restTemplate.exchange(
+                getRootUrl() + "/users/" + id, HttpMethod.PUT,
+                userEntity(user), User.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     /**
@@ -158,17 +387,14 @@ public class UserControllerTest {
      */
     @Test
     public void testDeleteUser() {
-        int id = 2;
-        User user = restTemplate
-                .getForObject(getRootUrl() + "/" + id, User.class);
-        assertNotNull(user);
-        restTemplate.delete(getRootUrl() + "/" + id);
-        try {
-            user = restTemplate
-                    .getForObject(getRootUrl() + "/" + id, User.class);
-        } catch (final HttpClientErrorException e) {
-            assertEquals(e.getStatusCode(), HttpStatus.NOT_FOUND);
-        }
+        User user = createUser("deleted@gmail.com", LocalDate.of(1990, 2, 3));
+        String url = getRootUrl() + "/users/" + user.getId();
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.DELETE, null, User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(user.getId(), response.getBody().getId());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(url,
+                User.class).getStatusCode());
     }
 
     /**
@@ -177,13 +403,287 @@ public class UserControllerTest {
     @Test
     public void testDeleteNonExistentUser() {
         long id = 10_000;
+        ResponseEntity<User> response = restTemplate.exchange(
+                getRootUrl() + "/users/" + id, HttpMethod.DELETE, null,
+                User.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    /**
+     * Tests that update and delete of existing user cost one statement each.
+     */
+    @Test
+    public void testUpdateAndDeleteStatementCount() {
         User user = prepareUser();
-        user.setId(id);
-        try {
-            restTemplate.delete(getRootUrl() + "/" + id);
-        } catch (final HttpClientErrorException e) {
-            assertEquals(e.getStatusCode(), HttpStatus.NOT_FOUND);
+        user.setLogin("singlestatement@gmail.com");
+        User created = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(user),
+                        User.class);
+        String url = getRootUrl() + "/users/" + created.getId();
+        Statistics statistics = entityManagerFactory
+                .unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        restTemplate.put(url, user);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.DELETE, null, User.class);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("singlestatement@gmail.com",
+                response.getBody().getLogin());
+        assertEquals("Kharkiv", response.getBody().getAddress().getCity());
+        assertEquals(HttpStatus.NOT_FOUND,
+                restTemplate.getForEntity(url, User.class).getStatusCode());
+    }
+
+    /**
+     * Tests changing some attributes of existing user.
+     */
+    @Test
+    public void testPatchUser() {
+        User user = prepareUser();
+        user.setLogin("patched@gmail.com");
+        User created = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(user),
+                        User.class);
+        String url = getRootUrl() + "/users/" + created.getId();
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.PATCH, jsonEntity("{\"firstName\":\"Patched\"}"),
+                User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        User patched = restTemplate.getForObject(url, User.class);
+        assertEquals("Patched", patched.getFirstName());
+        assertEquals(user.getLastName(), patched.getLastName());
+        assertEquals("patched@gmail.com", patched.getLogin());
+    }
+
+    /**
+     * Tests changing attributes of non-existent user.
+     */
+    @Test
+    public void testPatchNonExistentUser() {
+        ResponseEntity<String> response = restTemplate.exchange(
+                getRootUrl() + "/users/10000", HttpMethod.PATCH,
+                jsonEntity("{\"firstName\":\"Patched\"}"), String.class);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    /**
+     * Tests changing attribute of existing user to invalid value.
+     */
+    @Test
+    public void testPatchUserWithInvalidLogin() {
+        ResponseEntity<String> response = restTemplate.exchange(
+                getRootUrl() + "/users/1", HttpMethod.PATCH,
+                jsonEntity("{\"login\":\"abc\"}"), String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests that attributes which every user has cannot be removed.
+     */
+    @Test
+    public void testPatchUserWithNulls() {
+        String url = getRootUrl() + "/users/1";
+        for (String field : Arrays.asList("firstName", "lastName", "login",
+                "password")) {
+            ResponseEntity<String> response = restTemplate.exchange(url,
+                    HttpMethod.PATCH, jsonEntity("{\"" + field + "\":null}"),
+                    String.class);
+            assertEquals(field, HttpStatus.BAD_REQUEST,
+                    response.getStatusCode());
+        }
+        assertEquals(HttpStatus.NO_CONTENT, login("first@gmail.com", "12345"));
+    }
+
+    /**
+     * Tests that user is not sent again if the client has its current
+     * version.
+     */
+    @Test
+    public void testConditionalGetUser() {
+        User user = prepareUser();
+        user.setLogin("conditional@gmail.com");
+        User created = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(user),
+                        User.class);
+        String url = getRootUrl() + "/users/" + created.getId();
+        ResponseEntity<User> response = restTemplate
+                .getForEntity(url, User.class);
+        String eTag = response.getHeaders().getETag();
+        assertEquals("\"" + created.getVersion() + "\"", eTag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        ResponseEntity<String> notModified = restTemplate.exchange(url,
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+
+        headers.setIfNoneMatch("\"" + (created.getVersion() + 1) + "\"");
+        ResponseEntity<User> modified = restTemplate.exchange(url,
+                HttpMethod.GET, new HttpEntity<>(headers), User.class);
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals(created.getId(), modified.getBody().getId());
+    }
+
+    /**
+     * Tests that user is changed and removed only if the client has its
+     * current version.
+     */
+    @Test
+    public void testConditionalUpdateAndDeleteUser() {
+        User user = prepareUser();
+        user.setLogin("ifmatch@gmail.com");
+        User created = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(user),
+                        User.class);
+        String url = getRootUrl() + "/users/" + created.getId();
+        String staleETag = restTemplate.getForEntity(url, User.class)
+                .getHeaders().getETag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(staleETag);
+        user.setFirstName("Matched");
+        ResponseEntity<User> updated = restTemplate.exchange(url,
+                HttpMethod.PUT, new HttpEntity<>(user, headers), User.class);
+        assertEquals(HttpStatus.OK, updated.getStatusCode());
+        String currentETag = updated.getHeaders().getETag();
+        assertNotNull(currentETag);
+        assertFalse(currentETag.equals(staleETag));
+
+        ResponseEntity<String> conflict = restTemplate.exchange(url,
+                HttpMethod.PUT, new HttpEntity<>(user, headers), String.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        conflict = restTemplate.exchange(url, HttpMethod.PATCH,
+                new HttpEntity<>("{\"firstName\":\"Stale\"}", headers),
+                String.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+        conflict = restTemplate.exchange(url, HttpMethod.DELETE,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+
+        headers.setIfMatch(currentETag);
+        ResponseEntity<String> deleted = restTemplate.exchange(url,
+                HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, deleted.getStatusCode());
+        ResponseEntity<String> missing = restTemplate.exchange(url,
+                HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    /**
+     * Tests that users who live at the same address share one address row
+     * however the address is spelled.
+     */
+    @Test
+    public void testUsersShareAddress() {
+        User first = prepareUser();
+        first.setLogin("sharedfirst@gmail.com");
+        User second = prepareUser();
+        second.setLogin("sharedsecond@gmail.com");
+        second.getAddress().setCountry(" UKRAINE ");
+        second.getAddress().setCity("kharkiv");
+        second.getAddress().setStreet("Sumska ");
+        User firstCreated = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(first),
+                        User.class);
+        User secondCreated = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(second),
+                        User.class);
+        assertNotNull(firstCreated.getAddress().getId());
+        assertEquals(firstCreated.getAddress().getId(),
+                secondCreated.getAddress().getId());
+    }
+
+    /**
+     * Tests merging addresses which were written before deduplication into
+     * the canonical ones.
+     */
+    @Test
+    public void testMergeDuplicateAddresses() {
+        User user = prepareUser();
+        user.setLogin("mergedaddress@gmail.com");
+        Address address = user.getAddress();
+        address.setCountry("ukraine");
+        address.setCity("KIEV");
+        address.setStreet("Main  Street");
+        address.setHomeNumber("4");
+        User created = restTemplate
+                .postForObject(getRootUrl() + "/users", userEntity(user),
+                        User.class);
+        String firstUserETag = restTemplate.getForEntity(getRootUrl()
+                + "/users/1", User.class).getHeaders().getETag();
+
+        AddressMergeResult result = restTemplate.postForObject(
+                getRootUrl() + "/addresses/merge-duplicates", null,
+                AddressMergeResult.class);
+        assertTrue(result.getMerged() >= 1);
+        ResponseEntity<User> firstUser = restTemplate
+                .getForEntity(getRootUrl() + "/users/1", User.class);
+        assertEquals(created.getAddress().getId(),
+                firstUser.getBody().getAddress().getId());
+        assertNotNull(firstUserETag);
+        assertFalse(firstUserETag.equals(
+                firstUser.getHeaders().getETag()));
+
+        result = restTemplate.postForObject(
+                getRootUrl() + "/addresses/merge-duplicates", null,
+                AddressMergeResult.class);
+        assertEquals(0, result.getScanned());
+    }
+
+    /**
+     * Creates request with JSON body.
+     *
+     * @param json body of the request
+     * @return request entity
+     */
+    private static HttpEntity<String> jsonEntity(String json) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(json, headers);
+    }
+
+    /**
+     * Creates request with the user as JSON body. The password is never
+     * written with the user, so it is added to the body separately.
+     *
+     * @param user user to send
+     * @return request entity
+     */
+    private HttpEntity<String> userEntity(User user) {
+        return jsonEntity(userJson(user).toString());
+    }
+
+    /**
+     * Creates request with the users as JSON array body, with their
+     * passwords.
+     *
+     * @param users users to send
+     * @return request entity
+     */
+    private HttpEntity<String> usersEntity(User... users) {
+        ArrayNode body = objectMapper.createArrayNode();
+        for (User user : users) {
+            body.add(userJson(user));
         }
+        return jsonEntity(body.toString());
+    }
+
+    /**
+     * Writes the user to JSON together with the password.
+     *
+     * @param user user to write
+     * @return JSON object of the user
+     */
+    private ObjectNode userJson(User user) {
+        ObjectNode json = objectMapper.valueToTree(user);
+        return json.put("password", user.getPassword());
     }
 
     /**
@@ -202,6 +702,67 @@ public class UserControllerTest {
         assertNotNull(response.getBody());
     }
 
+    /**
+     * Tests finding users by the beginning of their name ignoring case.
+     */
+    @Test
+    public void testSearchByName() {
+        User user = prepareUser();
+        user.setFirstName("Searchable");
+        user.setLogin("searchable@gmail.com");
+        restTemplate.postForEntity(getRootUrl() + "/users", userEntity(user),
+                User.class);
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/search?q=sEaRcH", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("searchable@gmail.com"));
+        assertFalse(response.getBody().contains("first@gmail.com"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(
+                getRootUrl() + "/users/search?q= ", String.class)
+                .getStatusCode());
+    }
+
+    /**
+     * Tests that searching by name ignores case the same way whatever the
+     * default locale is (in Turkish "I" is lower-cased to dotless "ı").
+     */
+    @Test
+    public void testSearchByNameInTurkishLocale() {
+        User user = prepareUser();
+        user.setFirstName("Iris");
+        user.setLogin("iris@gmail.com");
+        restTemplate.postForEntity(getRootUrl() + "/users", userEntity(user),
+                User.class);
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            ResponseEntity<String> response = restTemplate.getForEntity(
+                    getRootUrl() + "/users/search?q=IRI", String.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertTrue(response.getBody().contains("iris@gmail.com"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    /**
+     * Tests finding users by domain of their login ignoring case.
+     */
+    @Test
+    public void testFindByEmailDomain() {
+        User user = prepareUser();
+        user.setLogin("domain@Example.ORG");
+        restTemplate.postForEntity(getRootUrl() + "/users", userEntity(user),
+                User.class);
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/emailDomain?domain=example.org",
+                String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("domain@Example.ORG"));
+        assertFalse(response.getBody().contains("@gmail.com"));
+    }
+
     /**
      * Tests finding users with specified address
      */
@@ -215,6 +776,36 @@ public class UserControllerTest {
         assertNotNull(response.getBody());
     }
 
+    /**
+     * Tests that finding users with addresses costs the same number of
+     * statements regardless of the number of found users.
+     */
+    @Test
+    public void testFindByAddressNotNullStatementCount() {
+        Statistics statistics = entityManagerFactory
+                .unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        restTemplate.getForEntity(getRootUrl() + "/users/withAddresses",
+                String.class);
+        long statementsBefore = statistics.getPrepareStatementCount();
+
+        User[] users = new User[10];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = prepareUser();
+            users[i].setLogin("statements" + i + "@gmail.com");
+        }
+        restTemplate.postForEntity(getRootUrl() + "/users/batch",
+                usersEntity(users),
+                BatchImportResult.class);
+
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        restTemplate.getForEntity(getRootUrl() + "/users/withAddresses",
+                String.class);
+        assertEquals(statementsBefore, statistics.getPrepareStatementCount());
+    }
+
     /**
      * Tests finding users whose birthday is earlier than specified date.
      */
@@ -230,15 +821,354 @@ public class UserControllerTest {
         assertNotNull(response.getBody());
     }
 
+    /**
+     * Tests reading users whose birthday is in the range page by page.
+     */
+    @Test
+    public void testFindByBirthdayBetween() {
+        createUser("birthdayfirst@gmail.com", LocalDate.of(1950, 6, 2));
+        createUser("birthdaysecond@gmail.com", LocalDate.of(1950, 6, 1));
+        createUser("birthdaythird@gmail.com", LocalDate.of(1950, 6, 1));
+        String url = getRootUrl()
+                + "/users/birthdays?from=1950-06-01&to=1950-06-02&limit=2";
+
+        CursorPage<User> page = restTemplate.exchange(url, HttpMethod.GET,
+                null, PAGE).getBody();
+        assertEquals(2, page.getItems().size());
+        assertEquals("birthdaysecond@gmail.com",
+                page.getItems().get(0).getLogin());
+        assertEquals("birthdaythird@gmail.com",
+                page.getItems().get(1).getLogin());
+        assertNotNull(page.getNextCursor());
+
+        page = restTemplate.exchange(url + "&cursor=" + page.getNextCursor(),
+                HttpMethod.GET, null, PAGE).getBody();
+        assertEquals(1, page.getItems().size());
+        assertEquals("birthdayfirst@gmail.com",
+                page.getItems().get(0).getLogin());
+        assertNull(page.getNextCursor());
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/birthdays?from=1950-06-02&to=1950-06-01",
+                String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests finding users whose age is in the range.
+     */
+    @Test
+    public void testFindByAge() {
+        LocalDate today = LocalDate.now();
+        createUser("eightyyoungest@gmail.com", today.minusYears(80));
+        createUser("eightyoldest@gmail.com",
+                today.minusYears(81).plusDays(1));
+        createUser("eightyone@gmail.com", today.minusYears(81));
+
+        CursorPage<User> page = restTemplate.exchange(getRootUrl()
+                        + "/users/age?minAge=80&maxAge=80", HttpMethod.GET,
+                null, PAGE).getBody();
+        assertEquals(2, page.getItems().size());
+        assertEquals("eightyoldest@gmail.com",
+                page.getItems().get(0).getLogin());
+        assertEquals("eightyyoungest@gmail.com",
+                page.getItems().get(1).getLogin());
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/age?minAge=-1", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+        response = restTemplate.getForEntity(
+                getRootUrl() + "/users/age?maxAge=2147483647", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests finding users whose birthday is celebrated in the next days.
+     */
+    @Test
+    public void testFindUpcomingBirthdays() {
+        User user = createUser("upcoming@gmail.com",
+                LocalDate.now().plusDays(3).minusYears(30));
+
+        CursorPage<User> page = restTemplate.exchange(getRootUrl()
+                        + "/users/upcomingBirthdays?days=5&limit=1000",
+                HttpMethod.GET, null, PAGE).getBody();
+        assertTrue(page.getItems().stream()
+                .anyMatch(found -> found.getId().equals(user.getId())));
+
+        page = restTemplate.exchange(getRootUrl()
+                        + "/users/upcomingBirthdays?days=1&limit=1000",
+                HttpMethod.GET, null, PAGE).getBody();
+        assertFalse(page.getItems().stream()
+                .anyMatch(found -> found.getId().equals(user.getId())));
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/upcomingBirthdays?days=366",
+                String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests that users born on February 29 celebrate on February 28 in the
+     * years which are not leap.
+     */
+    @Test
+    public void testFindUpcomingBirthdaysOfLeapDay() {
+        User user = createUser("leapday@gmail.com", LocalDate.of(2000, 2, 29));
+        LocalDate today = LocalDate.now();
+        LocalDate february28 = LocalDate.of(today.getYear(), 2, 28);
+        if (february28.isBefore(today)) {
+            february28 = february28.plusYears(1);
+        }
+        long days = ChronoUnit.DAYS.between(today, february28) + 1;
+        Assume.assumeTrue(days <= 365);
+
+        CursorPage<User> page = restTemplate.exchange(getRootUrl()
+                        + "/users/upcomingBirthdays?days=" + days
+                        + "&limit=1000",
+                HttpMethod.GET, null, PAGE).getBody();
+        assertEquals(!february28.isLeapYear(), page.getItems().stream()
+                .anyMatch(found -> found.getId().equals(user.getId())));
+    }
+
+    /**
+     * Tests full-text search of descriptions page by page from the most
+     * relevant user.
+     */
+    @Test
+    public void testSearchDescription() {
+        describeUser(createUser("gardener@gmail.com", LocalDate.of(1980, 4, 1)),
+                "Gardener. Grows tomatoes and sells tomato seedlings.");
+        describeUser(createUser("cook@gmail.com", LocalDate.of(1985, 9, 1)),
+                "Cook who likes fresh tomatoes.");
+        String url = getRootUrl()
+                + "/users/search/description?q=tomatoes -potatoes&limit=1";
+
+        CursorPage<DescriptionMatch> page = restTemplate.exchange(url,
+                HttpMethod.GET, null, MATCHES).getBody();
+        assertEquals(1, page.getItems().size());
+        assertEquals("gardener@gmail.com", page.getItems().get(0).getLogin());
+        assertTrue(page.getItems().get(0).getSnippet()
+                .contains("<mark>tomatoes</mark>"));
+        assertNotNull(page.getNextCursor());
+
+        page = restTemplate.exchange(url + "&cursor=" + page.getNextCursor(),
+                HttpMethod.GET, null, MATCHES).getBody();
+        assertEquals(1, page.getItems().size());
+        assertEquals("cook@gmail.com", page.getItems().get(0).getLogin());
+
+        page = restTemplate.exchange(url + "&cursor=" + page.getNextCursor(),
+                HttpMethod.GET, null, MATCHES).getBody();
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                getRootUrl() + "/users/search/description?q= ", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    /**
+     * Tests that the password is checked on login and never returned.
+     */
+    @Test
+    public void testLogin() {
+        User user = createUser("login@gmail.com", LocalDate.of(1991, 2, 3));
+        assertNull(user.getPassword());
+        assertFalse(restTemplate.getForObject(getRootUrl() + "/users/"
+                + user.getId(), String.class).contains("password"));
+
+        assertEquals(HttpStatus.NO_CONTENT,
+                login("login@gmail.com", "hellox users"));
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                login("login@gmail.com", "wrong password"));
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                login("nobody@gmail.com", "hellox users"));
+        assertEquals(HttpStatus.NO_CONTENT, login("first@gmail.com", "12345"));
+
+        jdbcTemplate.update("update users_schema.users set password = ? "
+                + "where id = ?", "plain secret", user.getId());
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                login("login@gmail.com", "plain secret"));
+    }
+
+    /**
+     * Tests changing password of the user.
+     */
+    @Test
+    public void testPatchPassword() {
+        User user = createUser("newpassword@gmail.com",
+                LocalDate.of(1992, 3, 4));
+        String url = getRootUrl() + "/users/" + user.getId();
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.PATCH, jsonEntity("{\"password\":\"new secret\"}"),
+                User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(HttpStatus.NO_CONTENT,
+                login("newpassword@gmail.com", "new secret"));
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                login("newpassword@gmail.com", "hellox users"));
+
+        ResponseEntity<String> invalid = restTemplate.exchange(url,
+                HttpMethod.PATCH, jsonEntity("{\"password\":\"abc\"}"),
+                String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+
+        String hashLike = "$pbkdf2-sha256$4$" + repeat('A', 22) + "$"
+                + repeat('A', 43);
+        response = restTemplate.exchange(url, HttpMethod.PATCH,
+                jsonEntity("{\"password\":\"" + hashLike + "\"}"),
+                User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(HttpStatus.NO_CONTENT,
+                login("newpassword@gmail.com", hashLike));
+    }
+
+    /**
+     * Tests that the password is kept when the updated user has none.
+     */
+    @Test
+    public void testUpdateUserKeepsPassword() {
+        User user = createUser("keptpassword@gmail.com",
+                LocalDate.of(1993, 4, 5));
+        user.setFirstName("Kept");
+        restTemplate.put(getRootUrl() + "/users/" + user.getId(),
+                userEntity(user));
+        assertEquals(HttpStatus.NO_CONTENT,
+                login("keptpassword@gmail.com", "hellox users"));
+
+        user.setPassword("changed password");
+        restTemplate.put(getRootUrl() + "/users/" + user.getId(),
+                userEntity(user));
+        assertEquals(HttpStatus.NO_CONTENT,
+                login("keptpassword@gmail.com", "changed password"));
+    }
+
+    /**
+     * Tests that the updated user is returned as stored, with the new
+     * version and the canonical address, not as it was sent.
+     */
+    @Test
+    public void testUpdateUserReturnsStoredUser() {
+        User user = createUser("storedupdate@gmail.com",
+                LocalDate.of(1994, 5, 6));
+        Address address = new Address();
+        address.setCountry("Ukraine");
+        address.setCity("Kharkiv");
+        address.setStreet("Sumska");
+        address.setHomeNumber("12");
+        user.setAddress(address);
+        user.setFirstName("Stored");
+        String url = getRootUrl() + "/users/" + user.getId();
+        ResponseEntity<User> response = restTemplate.exchange(url,
+                HttpMethod.PUT, userEntity(user), User.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        ResponseEntity<User> stored = restTemplate.getForEntity(url,
+                User.class);
+        assertEquals("Stored", response.getBody().getFirstName());
+        assertEquals(stored.getBody().getVersion(),
+                response.getBody().getVersion());
+        assertEquals(stored.getHeaders().getETag(),
+                response.getHeaders().getETag());
+        assertNotNull(response.getBody().getAddress().getId());
+        assertEquals(stored.getBody().getAddress().getId(),
+                response.getBody().getAddress().getId());
+        assertEquals(stored.getBody().getAddress().getVersion(),
+                response.getBody().getAddress().getVersion());
+    }
+
+    /**
+     * Creates string of the same character.
+     *
+     * @param c     character of the string
+     * @param count length of the string
+     * @return string of the character
+     */
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Signs in with the specified login and password.
+     *
+     * @param login    login of the user
+     * @param password password of the user
+     * @return status of the response
+     */
+    private HttpStatus login(String login, String password) {
+        Credentials credentials = new Credentials();
+        credentials.setLogin(login);
+        credentials.setPassword(password);
+        return restTemplate.postForEntity(getRootUrl() + "/users/login",
+                credentials, String.class).getStatusCode();
+    }
+
     /**
      * Test "sending message" to users whose email is Gmail.
      */
-    @PostMapping("/messaging")
-    public void testSendMessageToGmailUsers() {
+    @Test
+    public void testSendMessageToGmailUsers() throws InterruptedException {
         HttpHeaders headers = new HttpHeaders();
         HttpEntity<String> entity = new HttpEntity<>(null, headers);
-        ResponseEntity<String> response = restTemplate.exchange(getRootUrl()
-                        + "/messaging", HttpMethod.POST, entity, String.class);
-        assertEquals(HttpStatus.OK,response.getStatusCode());
+        ResponseEntity<MessagingJob> response = restTemplate.exchange(
+                getRootUrl() + "/users/messaging", HttpMethod.POST, entity,
+                MessagingJob.class);
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        String jobId = response.getBody().getId();
+        MessagingJob job = response.getBody();
+        for (int i = 0; i < 50 && job.getStatus() == MessagingJob.Status.RUNNING; i++) {
+            Thread.sleep(100);
+            job = restTemplate.getForObject(
+                    getRootUrl() + "/users/messaging/" + jobId,
+                    MessagingJob.class);
+        }
+        assertEquals(MessagingJob.Status.COMPLETED, job.getStatus());
+        assertEquals(job.getQueued(), job.getSent());
+    }
+
+    /**
+     * Tests that the connection pool reports its configured size and the
+     * connections acquired by requests.
+     */
+    @Test
+    public void testPoolStatistics() {
+        restTemplate.getForObject(getRootUrl() + "/users/1", User.class);
+        PoolStatistics stats = restTemplate.getForObject(
+                getRootUrl() + "/pool", PoolStatistics.class);
+        assertEquals("users-pool", stats.getName());
+        assertEquals(10, stats.getMaxSize());
+        assertTrue(stats.getAcquireCount() > 0);
+    }
+
+    /**
+     * Tests that controller, service, repository, Hibernate and pool
+     * metrics are published to the Prometheus endpoint.
+     */
+    @Test
+    public void testPrometheusMetrics() {
+        restTemplate.getForObject(getRootUrl() + "/users/1", User.class);
+        restTemplate.getForObject(getRootUrl() + "/addresses/page",
+                String.class);
+        restTemplate.getForObject(getRootUrl() + "/users/export",
+                String.class);
+        String metrics = restTemplate.getForObject(
+                getRootUrl() + "/actuator/prometheus", String.class);
+        assertTrue(metrics.contains("http_server_requests_seconds"));
+        assertTrue(metrics.contains("users_service_seconds"));
+        assertTrue(metrics.contains("users_repository_seconds"));
+        assertTrue(metrics.contains("class=\"AddressService\""));
+        assertTrue(metrics.contains("class=\"AddressRepository\""));
+        assertTrue(metrics.contains("class=\"UserRepository\",exception="
+                + "\"none\",method=\"streamAll\""));
+        assertFalse(metrics.contains("class=\"UserRepositoryImpl\""));
+        assertTrue(metrics.contains("quantile=\"0.99\""));
+        assertTrue(metrics.contains("hibernate_query_executions_total"));
+        assertTrue(metrics.contains("hikaricp_connections_acquire_seconds"));
+        assertTrue(metrics.contains("users_password_seconds"));
+        assertTrue(metrics.contains("users_password_rejected_total"));
+        assertTrue(metrics.contains("executor_queued_tasks{name=\"password\""));
     }
 }